@@ -0,0 +1,448 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Bridge from the benchmarks to the game classes.<p>
+ * The game lives in the default package, which Java code in a named package cannot name, and JMH
+ * refuses benchmarks in the default package. Every call therefore goes through a static final
+ * MethodHandle typed with Object in place of the game classes; the JIT treats those handles as
+ * constants and inlines the target, so the bridge does not show up in the measurements.
+ */
+public final class Game {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final Class<?> HUNTER = load("Hunter");
+    private static final Class<?> SHOP = load("Shop");
+    private static final Class<?> TOWN = load("Town");
+    private static final Class<?> TREASURE_HUNTER = load("TreasureHunter");
+    private static final Class<?> POLICY = load("Policy");
+    private static final Class<?> RENDERER = load("Renderer");
+    private static final Class<?> OUTCOME = load("Outcome");
+    private static final Class<?> WORLD = load("World");
+    private static final Class<?> SHARED_TOWN = load("SharedTown");
+    private static final Class<?> RULES = load("Rules");
+
+    private static final MethodHandle NEW_HUNTER = constructor(HUNTER, String.class, int.class);
+    private static final MethodHandle HAS_ITEM_IN_KIT = method(HUNTER, "hasItemInKit", boolean.class, String.class);
+    private static final MethodHandle ADD_ITEM = method(HUNTER, "addItem", boolean.class, String.class);
+    private static final MethodHandle REMOVE_ITEM_FROM_KIT = method(HUNTER, "removeItemFromKit", void.class, String.class);
+    private static final MethodHandle CHANGE_GOLD = method(HUNTER, "changeGold", void.class, int.class);
+    private static final MethodHandle GET_GOLD = method(HUNTER, "getGold", int.class);
+    private static final MethodHandle BUY_ITEM = method(HUNTER, "buyItem", boolean.class, String.class, int.class);
+    private static final MethodHandle SELL_ITEM = method(HUNTER, "sellItem", boolean.class, String.class, int.class);
+
+    private static final MethodHandle HEADLESS_RENDERER = staticMethod(RENDERER, "headless", RENDERER);
+    private static final MethodHandle NEW_RANDOM_POLICY = constructor(load("RandomPolicy"), String.class, int.class, SplittableRandom.class);
+
+    private static final MethodHandle NEW_SHOP = constructor(SHOP, double.class, POLICY, RENDERER);
+    private static final MethodHandle ADD_TO_SHOP = method(SHOP, "addToShop", void.class, load("Item"));
+    private static final MethodHandle GET_COST_OF_ITEM = method(SHOP, "getCostOfItem", int.class, String.class);
+    private static final MethodHandle GET_BUY_BACK_COST = method(SHOP, "getBuyBackCost", int.class, String.class);
+
+    private static final MethodHandle NEW_TOWN = constructor(TOWN, SHOP, double.class, boolean.class, SplittableRandom.class);
+    private static final MethodHandle HUNTER_ARRIVES = method(TOWN, "hunterArrives", OUTCOME, HUNTER);
+    private static final MethodHandle HUNT = method(TOWN, "hunt", OUTCOME);
+    private static final MethodHandle DIG = method(TOWN, "dig", OUTCOME);
+    private static final MethodHandle LOOK_FOR_TROUBLE = method(TOWN, "lookForTrouble", OUTCOME);
+    private static final MethodHandle LEAVE_TOWN = method(TOWN, "leaveTown", OUTCOME);
+    private static final MethodHandle LEFT_TOWN = method(OUTCOME, "leftTown", boolean.class);
+    private static final MethodHandle GET_COMMONS = method(TOWN, "getCommons", SHARED_TOWN);
+
+    private static final MethodHandle NEW_SHARED_WORLD = constructor(WORLD, long.class, long.class, int.class, int.class);
+    private static final MethodHandle WORLD_TOWN = method(WORLD, "town", TOWN, long.class, SHOP, double.class, boolean.class,
+            SplittableRandom.class, RULES);
+    private static final MethodHandle STANDARD_RULES = staticGetter(RULES, "STANDARD");
+    private static final MethodHandle TAKE = method(SHARED_TOWN, "take", boolean.class, load("Item"));
+    private static final MethodHandle RESTOCK = method(SHARED_TOWN, "restock", void.class, load("Item"));
+    private static final Object SHOVEL = item("SHOVEL");
+
+    private static final MethodHandle NEW_GAME = constructor(TREASURE_HUNTER, POLICY, RENDERER, SplittableRandom.class);
+    private static final MethodHandle WELCOME_PLAYER = privateMethod(TREASURE_HUNTER, "welcomePlayer", void.class);
+    private static final MethodHandle ENTER_TOWN = privateMethod(TREASURE_HUNTER, "enterTown", void.class);
+    private static final MethodHandle PLAY_ONE = staticMethod(load("HeadlessEngine"), "playOne", TREASURE_HUNTER, POLICY, SplittableRandom.class);
+
+    private static final Class<?> EVENT_JOURNAL = load("EventJournal");
+    private static final MethodHandle NEW_JOURNAL = constructor(EVENT_JOURNAL, Path.class, int.class, long.class);
+    private static final MethodHandle APPEND = method(EVENT_JOURNAL, "append", void.class, long.class, load("GameEvent"), int.class, int.class, int.class);
+    private static final MethodHandle CLOSE_JOURNAL = method(EVENT_JOURNAL, "close", void.class);
+
+    private Game() {
+    }
+
+    // Hunter
+
+    public static Object newHunter(String name, int gold) {
+        try {
+            return NEW_HUNTER.invokeExact(name, gold);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static boolean hasItemInKit(Object hunter, String item) {
+        try {
+            return (boolean) HAS_ITEM_IN_KIT.invokeExact(hunter, item);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static boolean addItem(Object hunter, String item) {
+        try {
+            return (boolean) ADD_ITEM.invokeExact(hunter, item);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static void removeItemFromKit(Object hunter, String item) {
+        try {
+            REMOVE_ITEM_FROM_KIT.invokeExact(hunter, item);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static void changeGold(Object hunter, int modifier) {
+        try {
+            CHANGE_GOLD.invokeExact(hunter, modifier);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static int getGold(Object hunter) {
+        try {
+            return (int) GET_GOLD.invokeExact(hunter);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static boolean buyItem(Object hunter, String item, int cost) {
+        try {
+            return (boolean) BUY_ITEM.invokeExact(hunter, item, cost);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static boolean sellItem(Object hunter, String item, int price) {
+        try {
+            return (boolean) SELL_ITEM.invokeExact(hunter, item, price);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    // Renderer and Policy
+
+    public static Object headlessRenderer() {
+        try {
+            return HEADLESS_RENDERER.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static Object randomPolicy(String mode, int maxTurns, SplittableRandom rng) {
+        try {
+            return NEW_RANDOM_POLICY.invokeExact(mode, maxTurns, rng);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    // Shop
+
+    public static Object newShop(double markdown, Object policy, Object renderer) {
+        try {
+            return NEW_SHOP.invokeExact(markdown, policy, renderer);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static void addSwordToShop(Object shop) {
+        try {
+            ADD_TO_SHOP.invokeExact(shop, item("SWORD"));
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static int getCostOfItem(Object shop, String item) {
+        try {
+            return (int) GET_COST_OF_ITEM.invokeExact(shop, item);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static int getBuyBackCost(Object shop, String item) {
+        try {
+            return (int) GET_BUY_BACK_COST.invokeExact(shop, item);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    // Town
+
+    public static Object newTown(Object shop, double toughness, boolean easy, SplittableRandom rng) {
+        try {
+            return NEW_TOWN.invokeExact(shop, toughness, easy, rng);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static Object hunterArrives(Object town, Object hunter) {
+        try {
+            return HUNTER_ARRIVES.invokeExact(town, hunter);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static Object hunt(Object town) {
+        try {
+            return HUNT.invokeExact(town);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static Object dig(Object town) {
+        try {
+            return DIG.invokeExact(town);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static Object lookForTrouble(Object town) {
+        try {
+            return LOOK_FOR_TROUBLE.invokeExact(town);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static Object leaveTown(Object town) {
+        try {
+            return LEAVE_TOWN.invokeExact(town);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static boolean leftTown(Object outcome) {
+        try {
+            return (boolean) LEFT_TOWN.invokeExact(outcome);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static Object getCommons(Object town) {
+        try {
+            return GET_COMMONS.invokeExact(town);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    // World and SharedTown
+
+    public static Object newSharedWorld(long seed, long size, int shopStock, int digSpots) {
+        try {
+            return NEW_SHARED_WORLD.invokeExact(seed, size, shopStock, digSpots);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Builds a hunter's own view of a world town, with the standard Rules and items that never break.
+     */
+    public static Object worldTown(Object world, long town, Object shop, double toughness, SplittableRandom rng) {
+        try {
+            return WORLD_TOWN.invokeExact(world, town, shop, toughness, true, rng, STANDARD_RULES.invokeExact());
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static boolean takeShovel(Object commons) {
+        try {
+            return (boolean) TAKE.invokeExact(commons, SHOVEL);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static void restockShovel(Object commons) {
+        try {
+            RESTOCK.invokeExact(commons, SHOVEL);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    // TreasureHunter
+
+    /**
+     * Creates a game that has already welcomed its player, ready for enterTown().
+     */
+    public static Object startedGame(Object policy, Object renderer, SplittableRandom rng) {
+        try {
+            Object game = NEW_GAME.invokeExact(policy, renderer, rng);
+            WELCOME_PLAYER.invokeExact(game);
+            return game;
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static void enterTown(Object game) {
+        try {
+            ENTER_TOWN.invokeExact(game);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static Object playOne(Object policy, SplittableRandom rng) {
+        try {
+            return PLAY_ONE.invokeExact(policy, rng);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    // EventJournal
+
+    public static Object newJournal(Path directory, int recordsPerSegment, long flushIntervalMillis) {
+        try {
+            return NEW_JOURNAL.invokeExact(directory, recordsPerSegment, flushIntervalMillis);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static Object gameEvent(String name) {
+        return constant("GameEvent", name);
+    }
+
+    public static void append(Object journal, long sessionId, Object event, int subject, int amount, int balance) {
+        try {
+            APPEND.invokeExact(journal, sessionId, event, subject, amount, balance);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    public static void closeJournal(Object journal) {
+        try {
+            CLOSE_JOURNAL.invokeExact(journal);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    // lookup helpers
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("game class " + name + " is not on the classpath", e);
+        }
+    }
+
+    private static Object item(String name) {
+        return constant("Item", name);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object constant(String enumName, String name) {
+        return Enum.valueOf((Class) load(enumName), name);
+    }
+
+    private static MethodHandle constructor(Class<?> owner, Class<?>... parameters) {
+        try {
+            return erase(LOOKUP.findConstructor(owner, MethodType.methodType(void.class, parameters)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle method(Class<?> owner, String name, Class<?> returns, Class<?>... parameters) {
+        try {
+            return erase(LOOKUP.findVirtual(owner, name, MethodType.methodType(returns, parameters)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle staticMethod(Class<?> owner, String name, Class<?> returns, Class<?>... parameters) {
+        try {
+            return erase(LOOKUP.findStatic(owner, name, MethodType.methodType(returns, parameters)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle staticGetter(Class<?> owner, String name) {
+        try {
+            return erase(LOOKUP.findStaticGetter(owner, name, owner));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle privateMethod(Class<?> owner, String name, Class<?> returns, Class<?>... parameters) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, LOOKUP);
+            return erase(lookup.findVirtual(owner, name, MethodType.methodType(returns, parameters)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Replaces every game class in a handle's type with Object so it can be invoked exactly from here.
+     */
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (isGameClass(type.parameterType(i))) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        if (isGameClass(type.returnType())) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+
+    private static boolean isGameClass(Class<?> type) {
+        return !type.isPrimitive() && type.getPackageName().isEmpty();
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+}
@@ -0,0 +1,53 @@
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole-game costs: moving to a new town, and playing a complete headless game with the random bot.<p>
+ * Watch gc.alloc.rate.norm on enterTown: a town transition should only allocate the Town itself,
+ * since the Shop, the Terrain and the shop listings are shared.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+    @Param({"n", "h", "s"})
+    public String mode;
+
+    private SplittableRandom rng;
+    private Object game;
+
+    @Setup
+    public void setUp() {
+        rng = new SplittableRandom(42);
+        game = Game.startedGame(Game.randomPolicy(mode, 200, rng.split()), Game.headlessRenderer(), rng.split());
+    }
+
+    @Benchmark
+    public Object enterTown() {
+        Game.enterTown(game);
+        return game;
+    }
+
+    @Benchmark
+    public Object headlessGame() {
+        SplittableRandom gameRng = rng.split();
+        return Game.playOne(Game.randomPolicy(mode, 200, gameRng.split()), gameRng);
+    }
+}
@@ -0,0 +1,64 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Kit lookups, kit changes and rendering of a Hunter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HunterBenchmark {
+    private Object hunter;
+
+    @Setup
+    public void setUp() {
+        hunter = Game.newHunter("bench", 100);
+        Game.addItem(hunter, "rope");
+        Game.addItem(hunter, "shovel");
+        Game.addItem(hunter, "horse");
+    }
+
+    @Benchmark
+    public boolean hasItemInKitPresent() {
+        return Game.hasItemInKit(hunter, "shovel");
+    }
+
+    @Benchmark
+    public boolean hasItemInKitMissing() {
+        return Game.hasItemInKit(hunter, "boat");
+    }
+
+    @Benchmark
+    public boolean addItemThenRemove() {
+        boolean added = Game.addItem(hunter, "boat");
+        Game.removeItemFromKit(hunter, "boat");
+        return added;
+    }
+
+    @Benchmark
+    public String toStringUnchanged() {
+        return hunter.toString();
+    }
+
+    @Benchmark
+    public String toStringAfterGoldChange() {
+        Game.changeGold(hunter, 1);
+        Game.changeGold(hunter, -1);
+        return hunter.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Contention in one town of a shared World: every benchmark thread is a hunter in the same town,
+ * along with a crowd of idle hunters to brawl with. Change the number of threads with -t to see how
+ * throughput holds up as more hunters act at once.<p>
+ * brawl picks a rival under the town's lock stripe and moves gold between two hunters with
+ * compare-and-set; dig uses up a spot under the stripe; trade takes a shovel from the shared stock,
+ * buys it, sells it back and restocks it; goldRush has every thread add and take back gold from one hunter,
+ * the worst case for compare-and-set.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class SharedTownBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Square {
+        @Param({"16", "512"})
+        public int crowd;
+
+        Object world;
+        Object richest;
+        AtomicLong seeds;
+
+        @Setup
+        public void setUp() {
+            world = Game.newSharedWorld(42, 1L << 40, Integer.MAX_VALUE / 2, Integer.MAX_VALUE);
+            richest = Game.newHunter("richest", 0);
+            seeds = new AtomicLong();
+            Object renderer = Game.headlessRenderer();
+            for (int i = 0; i < crowd; i++) {
+                SplittableRandom rng = new SplittableRandom(i);
+                Object shop = Game.newShop(0.5, Game.randomPolicy("n", 0, rng.split()), renderer);
+                Game.hunterArrives(Game.worldTown(world, 0, shop, 0.4, rng), Game.newHunter("idle" + i, 1_000_000));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Visitor {
+        Object hunter;
+        Object town;
+        Object commons;
+
+        @Setup
+        public void setUp(Square square) {
+            SplittableRandom rng = new SplittableRandom(square.seeds.incrementAndGet());
+            Object shop = Game.newShop(0.5, Game.randomPolicy("n", 0, rng.split()), Game.headlessRenderer());
+            town = Game.worldTown(square.world, 0, shop, 0.4, rng);
+            commons = Game.getCommons(town);
+            hunter = Game.newHunter("bench", 1_000_000);
+            Game.addItem(hunter, "shovel");
+            Game.hunterArrives(town, hunter);
+        }
+    }
+
+    @Benchmark
+    public int brawl(Visitor visitor) {
+        Game.lookForTrouble(visitor.town);
+        return Game.getGold(visitor.hunter);
+    }
+
+    @Benchmark
+    public int dig(Visitor visitor) {
+        Game.dig(visitor.town);
+        return Game.getGold(visitor.hunter);
+    }
+
+    @Benchmark
+    public boolean trade(Visitor visitor) {
+        Game.removeItemFromKit(visitor.hunter, "shovel");
+        boolean bought = Game.takeShovel(visitor.commons) && Game.buyItem(visitor.hunter, "shovel", 10);
+        if (bought && Game.sellItem(visitor.hunter, "shovel", 10)) {
+            Game.restockShovel(visitor.commons);
+        }
+        return bought;
+    }
+
+    @Benchmark
+    public int goldRush(Square square) {
+        Game.changeGold(square.richest, 1);
+        Game.changeGold(square.richest, -1);
+        return Game.getGold(square.richest);
+    }
+}
@@ -0,0 +1,50 @@
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Price lookups in a Shop, for an item near the start of the catalog, one near the end,
+ * the samurai sword and an item the shop does not sell.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShopBenchmark {
+    @Param({"water", "shovel", "sword", "banana"})
+    public String item;
+
+    private Object shop;
+
+    @Setup
+    public void setUp() {
+        Object renderer = Game.headlessRenderer();
+        shop = Game.newShop(0.5, Game.randomPolicy("s", 0, new SplittableRandom(1)), renderer);
+        Game.addSwordToShop(shop);
+    }
+
+    @Benchmark
+    public int getCostOfItem() {
+        return Game.getCostOfItem(shop, item);
+    }
+
+    @Benchmark
+    public int getBuyBackCost() {
+        return Game.getBuyBackCost(shop, item);
+    }
+}
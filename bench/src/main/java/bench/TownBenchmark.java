@@ -0,0 +1,67 @@
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The actions a hunter takes in a Town. The town is an easy one so items never break
+ * and leaveTown() can be repeated, and the hunter carries every item so it always succeeds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TownBenchmark {
+    private static final String[] ITEMS = {"water", "rope", "machete", "horse", "boat", "boots", "shovel"};
+
+    private Object hunter;
+    private Object town;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom rng = new SplittableRandom(42);
+        Object renderer = Game.headlessRenderer();
+        Object shop = Game.newShop(0.5, Game.randomPolicy("e", 0, rng.split()), renderer);
+        town = Game.newTown(shop, 0.4, true, rng);
+        hunter = Game.newHunter("bench", 1_000_000);
+        for (String item : ITEMS) {
+            Game.addItem(hunter, item);
+        }
+        Game.hunterArrives(town, hunter);
+    }
+
+    @Benchmark
+    public Object hunt() {
+        return Game.hunt(town);
+    }
+
+    @Benchmark
+    public int dig() {
+        Game.dig(town);
+        return Game.getGold(hunter);
+    }
+
+    @Benchmark
+    public int lookForTrouble() {
+        Game.lookForTrouble(town);
+        return Game.getGold(hunter);
+    }
+
+    @Benchmark
+    public boolean leaveTown() {
+        return Game.leftTown(Game.leaveTown(town));
+    }
+}
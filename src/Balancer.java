@@ -0,0 +1,345 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The Balancer searches the Rules for the ones that bring a bot closest to a target win rate and game length.<p>
+ * It starts from the standard Rules and turns one knob at a time, trying a step either way and keeping
+ * whichever Rules score best; when no step helps, the steps are halved, until they cannot get any smaller.
+ * The score is how far the win rate and mean turns are from their targets, each relative to its target.<p>
+ * Each Rules is played in chunks of games, and sampling stops as soon as the 95% confidence intervals of
+ * the win rate and mean turns are as narrow as asked for, so Rules far from the target cost a chunk or two.
+ * Every chunk is seeded the same for all Rules, so two Rules are compared on the same dice and the
+ * difference between them is less luck. The tally of every Rules is cached on disk under a hash of
+ * the Rules, bot, mode, turn limit and seed, so a sweep that is stopped or run again picks up where
+ * it left off, and a tighter tolerance only plays the extra games.
+ */
+
+public class Balancer {
+    // constants
+    private static final int CHUNK = 5_000;
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+    private static final String POPULATION = "population";
+
+    // instance variables
+    private String bot;
+    private String mode;
+    private int maxTurns;
+    private long seed;
+    private ForkJoinPool pool;
+    private Path cache;
+    private double winTolerance;
+    private double turnsTolerance;
+    private long maxGames;
+    private long gamesPlayed;
+    private int cacheHits;
+
+    /**
+     * @param bot A bot from Tournament.bots(), or "population" for RandomPolicy hunters on the PopulationSimulator.
+     * @param mode The mode letter to balance.
+     * @param maxTurns The number of turns a bot plays before giving up.
+     * @param seed The seed every Rules is played with.
+     * @param threads The number of threads to play on.
+     * @param cache The directory the tallies are kept in.
+     */
+    public Balancer(String bot, String mode, int maxTurns, long seed, int threads, Path cache) {
+        this.bot = bot;
+        this.mode = mode;
+        this.maxTurns = maxTurns;
+        this.seed = seed;
+        this.cache = cache;
+        pool = new ForkJoinPool(threads);
+        winTolerance = 0.005;
+        turnsTolerance = 1;
+        maxGames = 200_000;
+    }
+
+    /**
+     * @param winTolerance Sampling stops once the win rate is known to within this much either way.
+     * @param turnsTolerance Sampling stops once the mean turns are known to within this much either way.
+     * @param maxGames Sampling stops at this many games however wide the intervals still are.
+     */
+    public void setTolerance(double winTolerance, double turnsTolerance, long maxGames) {
+        this.winTolerance = winTolerance;
+        this.turnsTolerance = turnsTolerance;
+        this.maxGames = maxGames;
+    }
+
+    /**
+     * @return The knobs the search turns, for the mode being balanced.
+     */
+    public List<Knob> knobs() {
+        List<Knob> knobs = new ArrayList<>();
+        knobs.add(new Knob("toughness", 0.1, 0.0125, 0, 1,
+                rules -> rules.getToughness(mode), (rules, value) -> rules.withToughness(mode, value)));
+        knobs.add(new Knob("markdown", 0.1, 0.0125, 0, 1,
+                rules -> rules.getMarkdown(mode), (rules, value) -> rules.withMarkdown(mode, value)));
+        knobs.add(new Knob("break chance", 0.1, 0.0125, 0, 1,
+                Rules::getBreakChance, Rules::withBreakChance));
+        knobs.add(new Knob("hunt sides", 4, 1, 3, 100,
+                Rules::getHuntSides, (rules, value) -> rules.withHuntSides((int) value)));
+        knobs.add(new Knob("dig gold", 4, 1, 1, 100,
+                Rules::getDigGold, (rules, value) -> rules.withDigGold((int) value)));
+        knobs.add(new Knob("dirt one in", 2, 1, 1, 20,
+                Rules::getDirtOneIn, (rules, value) -> rules.withDirtOneIn((int) value)));
+        for (Item item : Item.values()) {
+            if (item != Item.SWORD) {
+                knobs.add(new Knob(item.getItemName() + " price", 4, 1, 1, 100,
+                        rules -> rules.getCatalog().listedPrice(item), (rules, value) -> rules.withPrice(item, (int) value)));
+            }
+        }
+        return knobs;
+    }
+
+    /**
+     * Searches for the Rules closest to the targets, printing every Rules it tries.
+     *
+     * @param start The Rules to start from.
+     * @param targetWinRate The win rate wanted.
+     * @param targetTurns The mean turns wanted.
+     * @param maxRounds The most passes over all the knobs.
+     * @return The best Rules found.
+     */
+    public Rules search(Rules start, double targetWinRate, double targetTurns, int maxRounds) {
+        List<Knob> knobs = knobs();
+        double[] steps = new double[knobs.size()];
+        for (int k = 0; k < steps.length; k++) {
+            steps[k] = knobs.get(k).step;
+        }
+        Rules best = start;
+        double bestScore = score(evaluate(best, "start"), targetWinRate, targetTurns);
+        for (int round = 1; round <= maxRounds; round++) {
+            boolean improved = false;
+            for (int k = 0; k < knobs.size(); k++) {
+                Knob knob = knobs.get(k);
+                for (int direction = -1; direction <= 1; direction += 2) {
+                    Rules candidate = knob.nudge(best, direction * steps[k]);
+                    if (candidate.equals(best)) {
+                        continue;
+                    }
+                    double score = score(evaluate(candidate, knob.name + (direction < 0 ? " -" : " +")
+                            + format(steps[k])), targetWinRate, targetTurns);
+                    if (score < bestScore) {
+                        best = candidate;
+                        bestScore = score;
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+            if (!improved) {
+                boolean smaller = false;
+                for (int k = 0; k < steps.length; k++) {
+                    double half = Math.max(knobs.get(k).smallestStep, steps[k] / 2);
+                    smaller |= half < steps[k];
+                    steps[k] = half;
+                }
+                if (!smaller) {
+                    break;
+                }
+            }
+            System.out.printf("round %d: score %.4f%n", round, bestScore);
+        }
+        return best;
+    }
+
+    /**
+     * Plays a Rules until its intervals are narrow enough, starting from its cached tally if it has one.
+     *
+     * @param rules The Rules to play.
+     * @return The tally of all the games played with them.
+     */
+    public HeadlessEngine.Tally tally(Rules rules) {
+        String key = bot + " " + mode + " " + maxTurns + " " + seed + " " + rules;
+        Path file = cache.resolve(String.format("%016x.tally", hash(key)));
+        HeadlessEngine.Tally tally = load(file, key);
+        if (tally == null) {
+            tally = new HeadlessEngine.Tally();
+        } else {
+            cacheHits++;
+        }
+        long before = tally.games;
+        while (tally.games < maxGames && !isNarrowEnough(tally)) {
+            tally.add(playChunk(rules, tally.games / CHUNK));
+        }
+        if (tally.games > before) {
+            gamesPlayed += tally.games - before;
+            save(file, key, tally);
+        }
+        return tally;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private HeadlessEngine.Tally evaluate(Rules rules, String change) {
+        HeadlessEngine.Tally tally = tally(rules);
+        double[] wins = tally.winRateInterval();
+        System.out.printf("  %-22s win %6.2f%% [%5.2f, %5.2f]  turns %7.2f +- %-5.2f  %7d games%n", change,
+                100 * tally.winRate(), 100 * wins[0], 100 * wins[1], tally.meanTurns(), tally.turnsMargin(), tally.games);
+        return tally;
+    }
+
+    private boolean isNarrowEnough(HeadlessEngine.Tally tally) {
+        if (tally.games == 0) {
+            return false;
+        }
+        double[] wins = tally.winRateInterval();
+        return (wins[1] - wins[0]) / 2 <= winTolerance && tally.turnsMargin() <= turnsTolerance;
+    }
+
+    private static double score(HeadlessEngine.Tally tally, double targetWinRate, double targetTurns) {
+        return Math.abs(tally.winRate() - targetWinRate) / targetWinRate
+                + Math.abs(tally.meanTurns() - targetTurns) / targetTurns;
+    }
+
+    /**
+     * Plays one chunk of games. Chunk n is seeded the same for every Rules.
+     */
+    private HeadlessEngine.Tally playChunk(Rules rules, long chunk) {
+        long chunkSeed = HeadlessEngine.gameRandom(seed, chunk).nextLong();
+        if (bot.equals(POPULATION)) {
+            return new PopulationSimulator(CHUNK, mode, maxTurns, chunkSeed, pool, rules).run();
+        }
+        PolicyFactory bots = Tournament.bots().get(bot);
+        if (bots == null) {
+            throw new IllegalArgumentException("unknown bot " + bot);
+        }
+        HeadlessEngine engine = new HeadlessEngine(bots, mode, maxTurns, chunkSeed, pool);
+        engine.setRules(rules);
+        return engine.run(CHUNK);
+    }
+
+    /**
+     * A cached tally is two lines: the key it was played under, then its totals.
+     */
+    private static HeadlessEngine.Tally load(Path file, String key) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.size() < 2 || !lines.get(0).equals(key)) {
+                return null;
+            }
+            String[] totals = lines.get(1).split(" ");
+            HeadlessEngine.Tally tally = new HeadlessEngine.Tally();
+            tally.games = Long.parseLong(totals[0]);
+            tally.won = Long.parseLong(totals[1]);
+            tally.broke = Long.parseLong(totals[2]);
+            tally.quit = Long.parseLong(totals[3]);
+            tally.turns = Long.parseLong(totals[4]);
+            tally.gold = Long.parseLong(totals[5]);
+            tally.turnsSquared = Long.parseLong(totals[6]);
+            tally.goldSquared = Long.parseLong(totals[7]);
+            return tally;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void save(Path file, String key, HeadlessEngine.Tally tally) {
+        String totals = tally.games + " " + tally.won + " " + tally.broke + " " + tally.quit + " " + tally.turns + " "
+                + tally.gold + " " + tally.turnsSquared + " " + tally.goldSquared;
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(temporary, (key + "\n" + totals + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long hash(String key) {
+        long hash = FNV_OFFSET;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    /**
+     * One number of the Rules that the search can turn, with how far it turns it and within what range.
+     */
+    public static class Knob {
+        private final String name;
+        private final double step;
+        private final double smallestStep;
+        private final double lowest;
+        private final double highest;
+        private final ToDoubleFunction<Rules> read;
+        private final Setter write;
+
+        /**
+         * Changes one number of a Rules.
+         */
+        public interface Setter {
+            Rules apply(Rules rules, double value);
+        }
+
+        public Knob(String name, double step, double smallestStep, double lowest, double highest,
+                    ToDoubleFunction<Rules> read, Setter write) {
+            this.name = name;
+            this.step = step;
+            this.smallestStep = smallestStep;
+            this.lowest = lowest;
+            this.highest = highest;
+            this.read = read;
+            this.write = write;
+        }
+
+        /**
+         * @param rules The Rules to change.
+         * @param by How far to turn the knob, kept within its range.
+         * @return The changed Rules.
+         */
+        public Rules nudge(Rules rules, double by) {
+            double value = Math.max(lowest, Math.min(highest, read.applyAsDouble(rules) + by));
+            // keep sums of steps such as 0.4 - 0.1 from drifting to 0.30000000000000004
+            return write.apply(rules, Math.round(value * 1e6) / 1e6);
+        }
+    }
+
+    /**
+     * Usage: java Balancer [targetWinRate] [targetTurns] [bot] [mode] [maxTurns] [threads] [seed] [cacheDirectory]
+     * [winTolerance] [turnsTolerance] [maxRounds]<p>
+     * The bot is random, digger, brawler or population; the best Rules are printed in the form Rules.parse() reads.
+     */
+    public static void main(String[] args) {
+        double targetWinRate = args.length > 0 ? Double.parseDouble(args[0]) : 0.25;
+        double targetTurns = args.length > 1 ? Double.parseDouble(args[1]) : 80;
+        String bot = args.length > 2 ? args[2] : "digger";
+        String mode = args.length > 3 ? args[3] : "n";
+        int maxTurns = args.length > 4 ? Integer.parseInt(args[4]) : 200;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : 42;
+        Path cache = Paths.get(args.length > 7 ? args[7] : "balancer-cache");
+        double winTolerance = args.length > 8 ? Double.parseDouble(args[8]) : 0.005;
+        double turnsTolerance = args.length > 9 ? Double.parseDouble(args[9]) : 1;
+        int maxRounds = args.length > 10 ? Integer.parseInt(args[10]) : 20;
+
+        Balancer balancer = new Balancer(bot, mode, maxTurns, seed, threads, cache);
+        balancer.setTolerance(winTolerance, turnsTolerance, 200_000);
+        long start = System.nanoTime();
+        Rules best = balancer.search(Rules.STANDARD, targetWinRate, targetTurns, maxRounds);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        balancer.shutdown();
+        System.out.println("best: " + best);
+        System.out.printf("%.1f s, %d games played, %d tallies from the cache%n", seconds, balancer.gamesPlayed, balancer.cacheHits);
+    }
+}
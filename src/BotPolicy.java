@@ -0,0 +1,90 @@
+/**
+ * A BotPolicy is the base for bots that play with a strategy instead of at random.<p>
+ * A strategy only decides the next menu move from the GameView; this class remembers which
+ * item the bot went into the shop for, answers the shop's questions, and gives up the hunt
+ * after the turn limit.
+ */
+
+public abstract class BotPolicy implements Policy {
+    // instance variables
+    protected GameView game;
+    private String mode;
+    private int maxTurns;
+    private Item wanted;
+
+    /**
+     * @param mode The mode letter to play in.
+     * @param maxTurns The number of turns to play before exiting.
+     */
+    protected BotPolicy(String mode, int maxTurns) {
+        this.mode = mode;
+        this.maxTurns = maxTurns;
+    }
+
+    public void start(GameView game) {
+        this.game = game;
+    }
+
+    public String hunterName() {
+        return "bot";
+    }
+
+    public String mode() {
+        return mode;
+    }
+
+    public String nextMove() {
+        if (game.getCount() > maxTurns) {
+            return "x";
+        }
+        return move();
+    }
+
+    /**
+     * @return The strategy's next menu move.
+     */
+    protected abstract String move();
+
+    public String chooseItem(boolean buying) {
+        return wanted == null ? "" : wanted.getItemName();
+    }
+
+    public boolean confirm(String item, int cost, boolean buying) {
+        return !buying || cost <= game.getGold();
+    }
+
+    /**
+     * @param item The item to buy.
+     * @return The move that enters the shop to buy it.
+     */
+    protected String buy(Item item) {
+        wanted = item;
+        return "b";
+    }
+
+    /**
+     * @param item An item.
+     * @return true if the shop sells the item, the hunter lacks it and can pay for it.
+     */
+    protected boolean canBuy(Item item) {
+        int price = game.getPrice(item);
+        return price > 0 && !game.hasItem(item) && game.getGold() >= price;
+    }
+
+    /**
+     * Moves on to the next town, buying what is needed to cross the terrain first
+     * and brawling for the gold when it cannot be afforded.
+     *
+     * @return The next move towards leaving town.
+     */
+    protected String travel() {
+        Item needed = game.getItemNeededToLeave();
+        if (game.hasItem(needed)) {
+            return "m";
+        }
+        if (canBuy(needed)) {
+            return buy(needed);
+        }
+        return "l";
+    }
+}
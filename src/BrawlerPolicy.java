@@ -0,0 +1,34 @@
+/**
+ * The BrawlerPolicy hunts every town and looks for trouble in the sleepy ones, where fights are
+ * easier to win, until it can afford a boat; then it saves for whatever the next terrain needs.
+ * In samurai mode it takes the free sword before anything else.
+ */
+
+public class BrawlerPolicy extends BotPolicy {
+
+    /**
+     * @param mode The mode letter to play in.
+     * @param maxTurns The number of turns to play before exiting.
+     */
+    public BrawlerPolicy(String mode, int maxTurns) {
+        super(mode, maxTurns);
+    }
+
+    protected String move() {
+        if (canBuy(Item.SWORD)) {
+            return buy(Item.SWORD);
+        }
+        if (!game.isTownSearched()) {
+            return "h";
+        }
+        if (!game.hasItem(Item.BOAT)) {
+            if (canBuy(Item.BOAT)) {
+                return buy(Item.BOAT);
+            }
+            if (!game.isToughTown()) {
+                return "l";
+            }
+        }
+        return travel();
+    }
+}
@@ -0,0 +1,376 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * The Broadcaster sends the games being played to everybody watching them, all from one thread.<p>
+ * A watcher is shown the hunts in progress and picks one by its number. From then on nothing is done
+ * for the watcher until the game publishes a turn: the SpectatorFeed's listener marks the feed as
+ * having news and wakes the Broadcaster's selector, which reads the new records for every watcher of
+ * that feed and writes them out without blocking. What a slow connection cannot take yet is kept for
+ * it, and no more is read for that watcher until it has gone out; then the watcher catches up from the
+ * latest turn. Watchers have no thread of their own, and one that is waiting for news holds no buffer,
+ * so thousands of them cost little more than their sockets.
+ */
+
+public class Broadcaster implements Runnable {
+    // constants
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_LINE = 256;
+    private static final int MAX_CHOICE = 32;
+    private static final long SWEEP_MILLIS = 1000;
+    private static final byte[] HUNTS = "Hunts in progress:\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MORE_HUNTS = "  ...\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WATCH_PROMPT = "Which hunt do you want to watch? ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NOBODY_HUNTING = "Nobody is hunting by that number right now.\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HUNT_OVER = "The hunt is over.\n".getBytes(StandardCharsets.US_ASCII);
+
+    // instance variables
+    private final Map<Long, SpectatorFeed> feeds;
+    private final long choiceTimeoutNanos;
+    private final Selector selector;
+    private final Queue<Watcher> joining;
+    private final Set<SpectatorFeed> news;
+    private final Map<SpectatorFeed, List<Watcher>> watchers; // the lists are only touched by the Broadcaster's thread
+    private final List<Watcher> choosing;
+    private final ByteBuffer outgoing;
+    private final StringBuilder line;
+    private final Consumer<SpectatorFeed.Delta> lines;
+    private volatile boolean running;
+
+    /**
+     * @param feeds The games being played, by session number.
+     * @param choiceTimeoutMillis How long a watcher may take to pick a hunt.
+     */
+    public Broadcaster(Map<Long, SpectatorFeed> feeds, int choiceTimeoutMillis) throws IOException {
+        this.feeds = feeds;
+        choiceTimeoutNanos = choiceTimeoutMillis * 1_000_000L;
+        selector = Selector.open();
+        joining = new ConcurrentLinkedQueue<>();
+        news = ConcurrentHashMap.newKeySet();
+        watchers = new ConcurrentHashMap<>();
+        choosing = new ArrayList<>();
+        outgoing = ByteBuffer.allocate(BUFFER_SIZE);
+        line = new StringBuilder(MAX_LINE);
+        lines = delta -> {
+            line.setLength(0);
+            delta.appendTo(line);
+            for (int i = 0; i < line.length(); i++) {
+                outgoing.put((byte) line.charAt(i));
+            }
+        };
+        running = true;
+    }
+
+    /**
+     * Hands a new watcher over to the Broadcaster. Any thread may call this.
+     *
+     * @param channel The watcher's connection.
+     * @param onLeave Run on the Broadcaster's thread once the watcher has gone.
+     */
+    public void join(SocketChannel channel, Runnable onLeave) {
+        joining.add(new Watcher(channel, onLeave));
+        selector.wakeup();
+    }
+
+    /**
+     * Tells the Broadcaster a feed has published; this is the feed's listener. It never blocks,
+     * and costs next to nothing when nobody is watching the feed.
+     *
+     * @param feed The feed with news.
+     */
+    public void published(SpectatorFeed feed) {
+        if (watchers.containsKey(feed) && news.add(feed)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Stops broadcasting; every watcher is disconnected.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    public void run() {
+        long lastSweep = System.nanoTime();
+        try {
+            while (running) {
+                selector.select(SWEEP_MILLIS);
+                for (Watcher watcher = joining.poll(); watcher != null; watcher = joining.poll()) {
+                    start(watcher);
+                }
+                Iterator<SelectionKey> ready = selector.selectedKeys().iterator();
+                while (ready.hasNext()) {
+                    SelectionKey key = ready.next();
+                    ready.remove();
+                    Watcher watcher = (Watcher) key.attachment();
+                    if (key.isValid() && key.isReadable()) {
+                        read(watcher);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        drain(watcher);
+                    }
+                }
+                Iterator<SpectatorFeed> updated = news.iterator();
+                while (updated.hasNext()) {
+                    SpectatorFeed feed = updated.next();
+                    updated.remove();
+                    List<Watcher> audience = watchers.get(feed);
+                    // a watcher may leave while being sent to, which only removes itself
+                    for (int i = audience == null ? -1 : audience.size() - 1; i >= 0; i--) {
+                        send(audience.get(i));
+                    }
+                }
+                long now = System.nanoTime();
+                if (now - lastSweep >= SWEEP_MILLIS * 1_000_000) {
+                    lastSweep = now;
+                    for (int i = choosing.size() - 1; i >= 0; i--) {
+                        if (now - choosing.get(i).joinedAt > choiceTimeoutNanos) {
+                            leave(choosing.get(i));
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // the selector failed; nobody can be sent anything any more
+        } finally {
+            for (Watcher watcher = joining.poll(); watcher != null; watcher = joining.poll()) {
+                leave(watcher);
+            }
+            for (SelectionKey key : new ArrayList<>(selector.keys())) {
+                leave((Watcher) key.attachment());
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+    }
+
+    /**
+     * Lists the hunts in progress for a new watcher and asks which one to watch.
+     */
+    private void start(Watcher watcher) {
+        try {
+            watcher.channel.configureBlocking(false);
+            watcher.key = watcher.channel.register(selector, SelectionKey.OP_READ, watcher);
+        } catch (IOException e) {
+            leave(watcher);
+            return;
+        }
+        watcher.joinedAt = System.nanoTime();
+        watcher.choice = ByteBuffer.allocate(MAX_CHOICE);
+        choosing.add(watcher);
+        outgoing.clear();
+        outgoing.put(HUNTS);
+        for (Map.Entry<Long, SpectatorFeed> feed : feeds.entrySet()) {
+            String name = feed.getValue().getName();
+            if (name == null || feed.getValue().isClosed()) {
+                continue;
+            }
+            byte[] listed = ("  " + feed.getKey() + "  " + name + "\n").getBytes(StandardCharsets.UTF_8);
+            if (outgoing.remaining() < listed.length + MORE_HUNTS.length + WATCH_PROMPT.length) {
+                outgoing.put(MORE_HUNTS);
+                break;
+            }
+            outgoing.put(listed);
+        }
+        outgoing.put(WATCH_PROMPT);
+        outgoing.flip();
+        write(watcher);
+    }
+
+    private void read(Watcher watcher) {
+        ByteBuffer into = watcher.choice != null ? watcher.choice : outgoing;
+        if (into == outgoing) {
+            // a watcher has nothing more to say once watching, so what they type is thrown away
+            outgoing.clear();
+        }
+        int read;
+        try {
+            read = watcher.channel.read(into);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read < 0) {
+            leave(watcher);
+        } else if (watcher.choice != null) {
+            choose(watcher);
+        }
+    }
+
+    /**
+     * Starts sending a watcher the hunt they picked, once they have typed a whole line.
+     */
+    private void choose(Watcher watcher) {
+        ByteBuffer typed = watcher.choice;
+        int end = -1;
+        for (int i = 0; i < typed.position(); i++) {
+            if (typed.get(i) == '\n') {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            if (!typed.hasRemaining()) {
+                leave(watcher);
+            }
+            return;
+        }
+        watcher.choice = null;
+        choosing.remove(watcher);
+        SpectatorFeed feed = null;
+        try {
+            feed = feeds.get(Long.parseLong(new String(typed.array(), 0, end, StandardCharsets.US_ASCII).trim()));
+        } catch (NumberFormatException e) {
+            // not a number, so nobody's hunt
+        }
+        outgoing.clear();
+        if (feed == null || feed.getName() == null) {
+            outgoing.put(NOBODY_HUNTING);
+            watcher.leaving = true;
+            outgoing.flip();
+            write(watcher);
+            return;
+        }
+        watcher.feed = feed;
+        // listed before subscribing, so no turn published in between goes unnoticed
+        watchers.computeIfAbsent(feed, unwatched -> new ArrayList<>()).add(watcher);
+        watcher.subscriber = feed.subscribe();
+        outgoing.put(("Watching " + feed.getName() + ".\n").getBytes(StandardCharsets.UTF_8));
+        outgoing.flip();
+        if (write(watcher)) {
+            send(watcher);
+        }
+    }
+
+    /**
+     * Sends a watcher every turn they have not seen yet, or as much as their connection takes.
+     */
+    private void send(Watcher watcher) {
+        while (watcher.pending == null && !watcher.leaving) {
+            outgoing.clear();
+            while (outgoing.remaining() >= MAX_LINE && watcher.subscriber.poll(lines, 1) > 0) {
+                // one line per record
+            }
+            if (watcher.feed.isClosed() && !watcher.subscriber.hasNext() && outgoing.remaining() >= HUNT_OVER.length) {
+                outgoing.put(HUNT_OVER);
+                watcher.leaving = true;
+            }
+            outgoing.flip();
+            if (!outgoing.hasRemaining() || !write(watcher)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes what is in the outgoing buffer, keeping whatever the connection does not take.
+     *
+     * @return true if it all went out and the watcher is still there.
+     */
+    private boolean write(Watcher watcher) {
+        try {
+            watcher.channel.write(outgoing);
+        } catch (IOException e) {
+            leave(watcher);
+            return false;
+        }
+        if (outgoing.hasRemaining()) {
+            watcher.pending = ByteBuffer.allocate(outgoing.remaining()).put(outgoing).flip();
+            watcher.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            return false;
+        }
+        if (watcher.leaving) {
+            leave(watcher);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes what a slow connection was left owing, then catches the watcher up.
+     */
+    private void drain(Watcher watcher) {
+        try {
+            watcher.channel.write(watcher.pending);
+        } catch (IOException e) {
+            leave(watcher);
+            return;
+        }
+        if (watcher.pending.hasRemaining()) {
+            return;
+        }
+        watcher.pending = null;
+        watcher.key.interestOps(SelectionKey.OP_READ);
+        if (watcher.leaving) {
+            leave(watcher);
+        } else if (watcher.subscriber != null) {
+            send(watcher);
+        }
+    }
+
+    private void leave(Watcher watcher) {
+        if (watcher.gone) {
+            return;
+        }
+        watcher.gone = true;
+        // free the slot first, so a watcher who sees the hang-up can come straight back
+        watcher.onLeave.run();
+        if (watcher.key != null) {
+            watcher.key.cancel();
+        }
+        try {
+            watcher.channel.close();
+        } catch (IOException e) {
+            // gone either way
+        }
+        if (watcher.choice != null) {
+            choosing.remove(watcher);
+        }
+        if (watcher.feed != null) {
+            List<Watcher> audience = watchers.get(watcher.feed);
+            audience.remove(watcher);
+            if (audience.isEmpty()) {
+                watchers.remove(watcher.feed);
+            }
+        }
+    }
+
+    /**
+     * One connection watching, or about to watch, a hunt.
+     */
+    private class Watcher {
+        private final SocketChannel channel;
+        private final Runnable onLeave;
+        private SelectionKey key;
+        private long joinedAt;
+        private ByteBuffer choice; // what they have typed, while picking a hunt
+        private SpectatorFeed feed;
+        private SpectatorFeed.Subscriber subscriber;
+        private ByteBuffer pending; // what their connection has not taken yet
+        private boolean leaving;
+        private boolean gone;
+
+        Watcher(SocketChannel channel, Runnable onLeave) {
+            this.channel = channel;
+            this.onLeave = onLeave;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Checkpoints holds the snapshots of unfinished games until their players come back for them.<p>
+ * A game is saved under a resume code, a random string the server gives the player when the session
+ * starts, so nobody can pick up somebody else's game by typing their name. The store is bounded twice
+ * over: a snapshot older than the maximum age is thrown away, and once the store is full, saving one
+ * more throws away the oldest.
+ */
+
+public class Checkpoints {
+    // constants
+    private static final int CODE_RADIX = 36;
+
+    // instance variables
+    private final int capacity;
+    private final long maxAgeNanos;
+    private final SecureRandom codes;
+    private final LinkedHashMap<String, Saved> saved; // oldest first
+
+    /**
+     * @param capacity The most snapshots kept at once.
+     * @param maxAgeMillis How long a snapshot is kept for its player.
+     */
+    public Checkpoints(int capacity, long maxAgeMillis) {
+        this.capacity = capacity;
+        maxAgeNanos = maxAgeMillis * 1_000_000;
+        codes = new SecureRandom();
+        saved = new LinkedHashMap<String, Saved>() {
+            protected boolean removeEldestEntry(Map.Entry<String, Saved> eldest) {
+                return size() > Checkpoints.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * @return A new resume code that cannot be guessed.
+     */
+    public String newCode() {
+        return Long.toString(codes.nextLong() >>> 1, CODE_RADIX);
+    }
+
+    /**
+     * @param code The player's resume code.
+     * @param snapshot Their game, saved with TreasureHunter.snapshot().
+     */
+    public synchronized void save(String code, byte[] snapshot) {
+        long now = System.nanoTime();
+        expire(now);
+        saved.remove(code);
+        saved.put(code, new Saved(snapshot, now));
+    }
+
+    /**
+     * Hands a saved game back to its player; it is then no longer kept.
+     *
+     * @param code The resume code the player typed.
+     * @return The snapshot, or null if no game is saved under the code.
+     */
+    public synchronized byte[] take(String code) {
+        expire(System.nanoTime());
+        Saved game = saved.remove(code);
+        return game == null ? null : game.snapshot;
+    }
+
+    /**
+     * @return How many unfinished games are waiting for their players.
+     */
+    public synchronized int size() {
+        expire(System.nanoTime());
+        return saved.size();
+    }
+
+    private void expire(long now) {
+        Iterator<Saved> games = saved.values().iterator();
+        while (games.hasNext() && now - games.next().savedAt > maxAgeNanos) {
+            games.remove();
+        }
+    }
+
+    private static class Saved {
+        private final byte[] snapshot;
+        private final long savedAt;
+
+        Saved(byte[] snapshot, long savedAt) {
+            this.snapshot = snapshot;
+            this.savedAt = savedAt;
+        }
+    }
+}
@@ -1,3 +1,5 @@
+import java.nio.charset.StandardCharsets;
+
 public class
 Colors {
 
@@ -19,4 +21,17 @@ Colors {
 
     public static final String WHITE = "\033[0;37m";   // WHITE
 
+    // the same codes as bytes, ready to be copied straight into a Renderer frame
+    public static final byte[] RESET_CODE = RESET.getBytes(StandardCharsets.US_ASCII);
+
+    public static final byte[] RED_CODE = RED.getBytes(StandardCharsets.US_ASCII);
+
+    public static final byte[] GREEN_CODE = GREEN.getBytes(StandardCharsets.US_ASCII);
+
+    public static final byte[] YELLOW_CODE = YELLOW.getBytes(StandardCharsets.US_ASCII);
+
+    public static final byte[] PURPLE_CODE = PURPLE.getBytes(StandardCharsets.US_ASCII);
+
+    public static final byte[] CYAN_CODE = CYAN.getBytes(StandardCharsets.US_ASCII);
+
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+/**
+ * The CommandTable maps each menu letter to the Command that carries it out.<p>
+ * Commands are looked up by the letter's character code in a flat array, so dispatch is a single
+ * index whatever the number of commands. The standard table is shared by every game and never
+ * changed after it is built; a game that wants extra or different commands gets its own copy from
+ * TreasureHunter.standardCommands() and registers them there.
+ */
+
+public class CommandTable {
+
+    /**
+     * One menu option.
+     */
+    public interface Command {
+        /**
+         * @param game The game the command was given in.
+         * @param choice The letter that was typed.
+         */
+        void execute(TreasureHunter game, String choice);
+    }
+
+    // constants
+    private static final int KEYS = 128;
+
+    // instance variables
+    private Command[] commands;
+    private Metrics.Action[] actions;
+
+    public CommandTable() {
+        commands = new Command[KEYS];
+        actions = new Metrics.Action[KEYS];
+    }
+
+    /**
+     * Adds a command, or replaces the one already under its letter.
+     *
+     * @param key The lowercase letter that runs it.
+     * @param action What it is timed as, or null if it times itself.
+     * @param command The command.
+     */
+    public void register(char key, Metrics.Action action, Command command) {
+        if (key >= KEYS) {
+            throw new IllegalArgumentException("command keys must be ASCII: " + key);
+        }
+        commands[key] = command;
+        actions[key] = action;
+    }
+
+    /**
+     * @param choice What the player typed.
+     * @return The table index for it, or -1 if it cannot be a command.
+     */
+    public static int key(String choice) {
+        if (choice.length() != 1 || choice.charAt(0) >= KEYS) {
+            return -1;
+        }
+        return choice.charAt(0);
+    }
+
+    /**
+     * @param key An index from key().
+     * @return The command registered there, or null.
+     */
+    public Command get(int key) {
+        return key < 0 ? null : commands[key];
+    }
+
+    /**
+     * @param key An index from key().
+     * @return What the command is timed as; OTHER for anything that is not a command.
+     */
+    public Metrics.Action action(int key) {
+        if (key < 0 || commands[key] == null) {
+            return Metrics.Action.OTHER;
+        }
+        return actions[key];
+    }
+
+    /**
+     * @return A table with the same commands that can be changed without affecting this one.
+     */
+    public CommandTable copy() {
+        CommandTable copy = new CommandTable();
+        copy.commands = commands.clone();
+        copy.actions = actions.clone();
+        return copy;
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * The DiggerPolicy buys a shovel first and then digs and hunts in every town it passes through,
+ * only brawling when it is short of gold for the shovel or the way out of town.
+ * In samurai mode it takes the free sword before anything else.
+ */
+
+public class DiggerPolicy extends BotPolicy {
+
+    /**
+     * @param mode The mode letter to play in.
+     * @param maxTurns The number of turns to play before exiting.
+     */
+    public DiggerPolicy(String mode, int maxTurns) {
+        super(mode, maxTurns);
+    }
+
+    protected String move() {
+        if (canBuy(Item.SWORD)) {
+            return buy(Item.SWORD);
+        }
+        if (!game.hasItem(Item.SHOVEL)) {
+            return canBuy(Item.SHOVEL) ? buy(Item.SHOVEL) : "l";
+        }
+        if (!game.isGoldSearched()) {
+            return "d";
+        }
+        if (!game.isTownSearched()) {
+            return "h";
+        }
+        return travel();
+    }
+}
@@ -0,0 +1,239 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The EventJournal is an append-only audit trail of every GameEvent, kept in memory-mapped files.<p>
+ * Every event is a fixed-size 32 byte record:
+ * <pre>
+ *   0  long  time (epoch milliseconds)
+ *   8  long  session id
+ *  16  byte  event code (0 marks an empty slot), byte subject, 2 bytes unused
+ *  20  int   amount
+ *  24  int   balance
+ *  28  int   unused
+ * </pre>
+ * Records go into segment files of a fixed number of records. Once a segment is half full the
+ * background thread creates and maps the next one, so it is ready before the first record reaches it
+ * and a game thread never waits on a new file. Appending claims a slot with a single atomic increment and writes straight into the mapping,
+ * so many game threads can append at once without taking a lock. The event code is written last, so a
+ * reader never sees half a record. Forcing the pages to disk happens in batches on a background thread,
+ * never on the game thread.
+ */
+
+public class EventJournal implements AutoCloseable {
+    // constants
+    public static final int RECORD_SIZE = 32;
+    static final int TIME = 0;
+    static final int SESSION = 8;
+    static final int HEADER = 16;
+    static final int AMOUNT = 20;
+    static final int BALANCE = 24;
+    static final String PREFIX = "events-";
+    static final String SUFFIX = ".journal";
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // instance variables
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final long firstRecord;
+    private final AtomicLong nextRecord;
+    private final ConcurrentHashMap<Long, Segment> segments;
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Opens a journal in a directory. Appending always starts in a fresh segment after any already there.
+     *
+     * @param directory Where the segment files are kept.
+     * @param recordsPerSegment How many records fit in one segment file.
+     * @param flushIntervalMillis How often written records are forced to disk.
+     */
+    public EventJournal(Path directory, int recordsPerSegment, long flushIntervalMillis) {
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        try {
+            Files.createDirectories(directory);
+            List<Path> existing = segmentFiles(directory);
+            long nextSegment = existing.isEmpty() ? 0 : segmentNumber(existing.get(existing.size() - 1)) + 1;
+            firstRecord = nextSegment * recordsPerSegment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        nextRecord = new AtomicLong(firstRecord);
+        segments = new ConcurrentHashMap<>();
+        flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        mapAhead(firstRecord / recordsPerSegment);
+    }
+
+    /**
+     * @param sessionId The id written with every event of the session.
+     * @return A listener that appends a session's events to this journal.
+     */
+    public GameListener session(long sessionId) {
+        return (event, subject, amount, balance) -> append(sessionId, event, subject, amount, balance);
+    }
+
+    /**
+     * Appends one event.
+     *
+     * @param sessionId The session the event belongs to.
+     * @param event What happened.
+     * @param subject The ordinal of the Item or Treasure involved, or -1.
+     * @param amount The gold involved.
+     * @param balance The hunter's gold afterwards.
+     */
+    public void append(long sessionId, GameEvent event, int subject, int amount, int balance) {
+        long index = nextRecord.getAndIncrement();
+        long number = index / recordsPerSegment;
+        int slot = (int) (index % recordsPerSegment);
+        if (slot == recordsPerSegment / 2) {
+            mapAhead(number + 1);
+        }
+        Segment segment = segment(number);
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = slot * RECORD_SIZE;
+        buffer.putLong(offset + TIME, System.currentTimeMillis());
+        buffer.putLong(offset + SESSION, sessionId);
+        buffer.putInt(offset + AMOUNT, amount);
+        buffer.putInt(offset + BALANCE, balance);
+        // publish the record by writing its event code last
+        INT.setRelease(buffer, offset + HEADER, event.code() | (subject & 0xFF) << 8);
+        segment.written.incrementAndGet();
+    }
+
+    /**
+     * @return How many records have been appended since the journal was opened.
+     */
+    public long size() {
+        return nextRecord.get() - firstRecord;
+    }
+
+    /**
+     * Forces everything written so far to disk, and lets go of segments that are full.
+     */
+    public void flush() {
+        for (Long number : segments.keySet()) {
+            Segment segment = segments.get(number);
+            if (segment == null) {
+                continue;
+            }
+            boolean full = segment.written.get() == recordsPerSegment;
+            segment.buffer.force();
+            if (full) {
+                segments.remove(number);
+            }
+        }
+    }
+
+    /**
+     * Stops the background flushing and forces everything to disk.
+     */
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Has the background thread map a segment before any record needs it.
+     */
+    private void mapAhead(long number) {
+        try {
+            flusher.execute(() -> {
+                // a segment already written to is mapped by its first record, and may even be full and let go
+                if (nextRecord.get() <= number * recordsPerSegment) {
+                    segments.computeIfAbsent(number, this::map);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // closed; a late record maps its own segment
+        }
+    }
+
+    private Segment segment(long number) {
+        Segment segment = segments.get(number);
+        if (segment == null) {
+            // only when half a segment was appended before the background thread got round to it
+            segment = segments.computeIfAbsent(number, this::map);
+        }
+        return segment;
+    }
+
+    private Segment map(long number) {
+        Path file = directory.resolve(segmentName(number));
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new Segment(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String segmentName(long number) {
+        return PREFIX + String.format("%012d", number) + SUFFIX;
+    }
+
+    static long segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * @param directory A journal directory.
+     * @return Its segment files, oldest first.
+     */
+    static List<Path> segmentFiles(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+                for (Path file : stream) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * One mapped segment file and how many records have been written into it.
+     */
+    private static class Segment {
+        final MappedByteBuffer buffer;
+        final AtomicInteger written;
+
+        Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+            written = new AtomicInteger();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * The things that happen in a game which are worth keeping a record of.<p>
+ * Each event comes with a subject (an Item or Treasure ordinal, or -1), an amount of gold and the
+ * hunter's gold balance afterwards.
+ */
+
+public enum GameEvent {
+    /** The hunter's gold changed; the amount is the change. */
+    GOLD_CHANGED,
+    /** The subject Item was bought; the amount is its price. */
+    ITEM_BOUGHT,
+    /** The subject Item was sold; the amount is what the shop paid. */
+    ITEM_SOLD,
+    /** The hunter left town using the subject Item. */
+    TOWN_LEFT,
+    /** The subject Item broke or was lost while leaving town. */
+    ITEM_BROKE,
+    /** The subject Treasure was found. */
+    TREASURE_FOUND,
+    /** The hunter found the last treasure. */
+    VICTORY;
+
+    // static variables
+    private static final GameEvent[] EVENTS = values();
+
+    /**
+     * @param code The code from code().
+     * @return The event with that code, or null for 0, which marks an empty journal slot, and for a
+     *         code no event has.
+     */
+    public static GameEvent of(int code) {
+        return code <= 0 || code > EVENTS.length ? null : EVENTS[code - 1];
+    }
+
+    /**
+     * @return A number from 1 identifying the event in binary records.
+     */
+    public int code() {
+        return ordinal() + 1;
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * A GameListener is told about every GameEvent in a session, as it happens.
+ */
+
+public interface GameListener {
+    /** A listener that ignores everything. */
+    GameListener NONE = (event, subject, amount, balance) -> { };
+
+    /**
+     * @param event What happened.
+     * @param subject The ordinal of the Item or Treasure involved, or -1.
+     * @param amount The gold involved.
+     * @param balance The hunter's gold afterwards.
+     */
+    void onEvent(GameEvent event, int subject, int amount, int balance);
+}
@@ -0,0 +1,12 @@
+/**
+ * The ways a game of Treasure Hunter can finish.
+ */
+
+public enum GameResult {
+    /** The hunter found all three treasures. */
+    WON,
+    /** The hunter's gold dropped below zero. */
+    BROKE,
+    /** The player gave up the hunt. */
+    QUIT
+}
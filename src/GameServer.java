@@ -0,0 +1,340 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The GameServer hosts many Treasure Hunter players in one JVM over telnet-style TCP connections.<p>
+ * Every connection gets its own TreasureHunter session with its own input, output and random source,
+ * running on its own (virtual, where available) thread. A session that sends nothing for the idle
+ * timeout, or sends a line longer than 1024 bytes, is disconnected, and connections beyond the
+ * session limit are turned away.<p>
+ * Every session is given a resume code when it starts. When a player hangs up or goes idle in the
+ * middle of a game, the game is checkpointed as a compact snapshot under that code, and whoever
+ * connects and gives the code carries on with it. Checkpoints are kept for a day, and only so many.<p>
+ * Given a spectator address, the server also lets people watch the games being played. A watcher
+ * connects there and picks a hunt by its session number, then gets one short line per turn with only
+ * what changed. Every game publishes to its own SpectatorFeed, and a single Broadcaster thread sends
+ * the turns on to every watcher as they are published, so a watcher with a slow connection falls
+ * behind and skips ahead without ever holding up the player. Watchers beyond the spectator limit are
+ * turned away.
+ */
+
+public class GameServer {
+    // constants
+    private static final int INPUT_BUFFER_SIZE = 256;
+    private static final int MAX_LINE_LENGTH = 1024;
+    private static final int ACCEPT_BACKLOG = 1024;
+    private static final long WORLD_SIZE = 1L << 40;
+    private static final int LEADERBOARD_BATCH = 64;
+    private static final int SPECTATOR_RING = 256;
+    private static final int SHARED_DIG_SPOTS = 10;
+    private static final int MAX_CHECKPOINTS = 100_000;
+    private static final long CHECKPOINT_MAX_AGE_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final byte[] RESUME_PROMPT = "Resume code from an unfinished hunt (Enter to start a new one)? "
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NO_SUCH_HUNT = "No hunt is saved under that code; starting a new one.\n"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SERVER_FULL = "The treasure hunt is full, try again later.\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IDLE = ("\nYou fell asleep by the fire. Your hunt is saved; come back with your resume code to carry on.\n")
+            .getBytes(StandardCharsets.US_ASCII);
+
+    // instance variables
+    private InetSocketAddress address;
+    private int idleTimeoutMillis;
+    private Semaphore slots;
+    private AtomicInteger activeSessions;
+    private AtomicLong sessionIds;
+    private SplittableRandom seeds;
+    private EventJournal journal;
+    private World world;
+    private Leaderboard leaderboard;
+    private Checkpoints checkpoints;
+    private ServerSocket serverSocket;
+    private ExecutorService sessions;
+    private Thread acceptor;
+    private InetSocketAddress spectatorAddress;
+    private Semaphore spectatorSlots;
+    private AtomicInteger activeSpectators;
+    private Map<Long, SpectatorFeed> broadcasts;
+    private ServerSocketChannel spectatorSocket;
+    private Broadcaster broadcaster;
+    private Thread spectatorAcceptor;
+    private Thread broadcasterThread;
+
+    /**
+     * @param address The address to listen on; port 0 picks a free port.
+     * @param maxSessions The most sessions that may be connected at once.
+     * @param idleTimeoutMillis How long a player may go without sending anything.
+     */
+    public GameServer(InetSocketAddress address, int maxSessions, int idleTimeoutMillis) {
+        this.address = address;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        slots = new Semaphore(maxSessions);
+        activeSessions = new AtomicInteger();
+        sessionIds = new AtomicLong();
+        seeds = new SplittableRandom();
+        checkpoints = new Checkpoints(MAX_CHECKPOINTS, CHECKPOINT_MAX_AGE_MILLIS);
+        activeSpectators = new AtomicInteger();
+        broadcasts = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param journal Records every event of every session; set it before start().
+     */
+    public void setJournal(EventJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @param world The map every session plays on; set it before start(). Without one, towns are rolled at random.
+     */
+    public void setWorld(World world) {
+        this.world = world;
+    }
+
+    /**
+     * @param leaderboard Records every game that is played to the end; set it before start().
+     */
+    public void setLeaderboard(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+
+    /**
+     * @param spectatorAddress Where watchers connect to follow games; set it before start(). Without one nobody can watch.
+     * @param maxSpectators The most watchers that may be connected at once.
+     */
+    public void setSpectatorAddress(InetSocketAddress spectatorAddress, int maxSpectators) {
+        this.spectatorAddress = spectatorAddress;
+        spectatorSlots = new Semaphore(maxSpectators);
+    }
+
+    /**
+     * Starts listening and accepting players in the background, and publishes the game metrics over JMX.
+     */
+    public void start() throws IOException {
+        Metrics.GLOBAL.register();
+        serverSocket = new ServerSocket();
+        serverSocket.bind(address, ACCEPT_BACKLOG);
+        sessions = SessionThreads.newExecutor("session");
+        acceptor = new Thread(this::acceptLoop, "acceptor");
+        acceptor.start();
+        if (spectatorAddress != null) {
+            spectatorSocket = ServerSocketChannel.open();
+            spectatorSocket.bind(spectatorAddress, ACCEPT_BACKLOG);
+            broadcaster = new Broadcaster(broadcasts, idleTimeoutMillis);
+            broadcasterThread = new Thread(broadcaster, "broadcaster");
+            broadcasterThread.start();
+            spectatorAcceptor = new Thread(this::spectatorLoop, "spectator-acceptor");
+            spectatorAcceptor.start();
+        }
+    }
+
+    /**
+     * @return The port the server is listening on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * @return The port watchers connect to, or -1 when nobody can watch.
+     */
+    public int getSpectatorPort() {
+        return spectatorSocket == null ? -1 : spectatorSocket.socket().getLocalPort();
+    }
+
+    public int getActiveSpectators() {
+        return activeSpectators.get();
+    }
+
+    /**
+     * @return How many unfinished games are waiting for their players to come back.
+     */
+    public int getCheckpointCount() {
+        return checkpoints.size();
+    }
+
+    /**
+     * Stops accepting players. Sessions already running end when their players leave or go idle.
+     */
+    public void stop() throws IOException {
+        serverSocket.close();
+        if (spectatorSocket != null) {
+            spectatorSocket.close();
+            broadcaster.stop();
+        }
+        sessions.shutdown();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                // the server socket was closed by stop()
+                return;
+            }
+            if (!slots.tryAcquire()) {
+                refuse(socket);
+                continue;
+            }
+            SplittableRandom rng;
+            synchronized (seeds) {
+                rng = seeds.split();
+            }
+            sessions.execute(() -> runSession(socket, rng));
+        }
+    }
+
+    private void runSession(Socket socket, SplittableRandom rng) {
+        activeSessions.incrementAndGet();
+        String code = checkpoints.newCode();
+        long sessionId = sessionIds.incrementAndGet();
+        SpectatorFeed feed = null;
+        if (broadcaster != null) {
+            SpectatorFeed watched = new SpectatorFeed(SPECTATOR_RING);
+            watched.setListener(() -> broadcaster.published(watched));
+            broadcasts.put(sessionId, watched);
+            feed = watched;
+        }
+        try (Socket connection = socket) {
+            connection.setSoTimeout(idleTimeoutMillis);
+            connection.setTcpNoDelay(true);
+            OutputStream out = connection.getOutputStream();
+            StreamInput input = new StreamInput(connection.getInputStream(), INPUT_BUFFER_SIZE, MAX_LINE_LENGTH);
+            input.setEndIsHangUp(true);
+            out.write(RESUME_PROMPT);
+            out.flush();
+            String resumeCode = input.nextLine();
+            byte[] saved = resumeCode.isBlank() ? null : checkpoints.take(resumeCode.trim());
+            if (!resumeCode.isBlank() && saved == null) {
+                out.write(NO_SUCH_HUNT);
+            }
+            out.write(("Your resume code is " + code + "; if you get cut off, give it when you come back.\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            if (feed != null) {
+                out.write(("Spectators can watch your hunt as number " + sessionId + ".\n").getBytes(StandardCharsets.US_ASCII));
+            }
+            TreasureHunter game = new TreasureHunter(new InputPolicy(input), new Renderer(out, true), rng);
+            game.setSavedGame(saved);
+            if (world != null) {
+                game.setWorld(world);
+            }
+            game.setLeaderboard(leaderboard);
+            game.setSpectatorFeed(feed);
+            if (journal != null) {
+                game.setListener(journal.session(sessionId));
+            }
+            try {
+                game.play();
+            } catch (UncheckedIOException e) {
+                if (e.getCause() instanceof SocketTimeoutException) {
+                    out.write(IDLE);
+                    out.flush();
+                }
+            } finally {
+                // saved before the connection closes, so a player who comes straight back finds it
+                if (game.isInProgress()) {
+                    checkpoints.save(code, game.snapshot());
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // the player hung up; a game they had started was checkpointed above
+        } finally {
+            if (feed != null) {
+                broadcasts.remove(sessionId);
+                feed.close();
+            }
+            activeSessions.decrementAndGet();
+            slots.release();
+        }
+    }
+
+    private void spectatorLoop() {
+        while (spectatorSocket.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = spectatorSocket.accept();
+            } catch (IOException e) {
+                // the spectator socket was closed by stop()
+                return;
+            }
+            if (!spectatorSlots.tryAcquire()) {
+                refuse(channel.socket());
+                continue;
+            }
+            activeSpectators.incrementAndGet();
+            broadcaster.join(channel, () -> {
+                activeSpectators.decrementAndGet();
+                spectatorSlots.release();
+            });
+        }
+    }
+
+    private void refuse(Socket socket) {
+        try (Socket connection = socket) {
+            connection.getOutputStream().write(SERVER_FULL);
+        } catch (IOException e) {
+            // the player is turned away either way
+        }
+    }
+
+    /**
+     * Usage: java GameServer [port] [maxSessions] [idleTimeoutSeconds] [host] [journalDirectory] [worldSeed] [leaderboardDirectory] [spectatorPort] [shopStock]<p>
+     * A journal directory, world seed, leaderboard directory or spectator port of "-" plays without one.
+     * The leaderboard is written out in batches and once more when the server process exits. With a
+     * spectator port, games can be watched from there by as many watchers as there may be players. With a shop stock, the world is shared: hunters
+     * in the same town compete for it, and each shop has that many of every item.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int maxSessions = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int idleSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+        InetAddress host = args.length > 3 ? InetAddress.getByName(args[3]) : InetAddress.getLoopbackAddress();
+
+        GameServer server = new GameServer(new InetSocketAddress(host, port), maxSessions, idleSeconds * 1000);
+        if (args.length > 4 && !args[4].equals("-")) {
+            server.setJournal(new EventJournal(Paths.get(args[4]), 1 << 20, 100));
+        }
+        if (args.length > 8 && !args[5].equals("-")) {
+            server.setWorld(new World(Long.parseLong(args[5]), WORLD_SIZE, Integer.parseInt(args[8]), SHARED_DIG_SPOTS));
+        } else if (args.length > 5 && !args[5].equals("-")) {
+            server.setWorld(new World(Long.parseLong(args[5]), WORLD_SIZE));
+        }
+        if (args.length > 6 && !args[6].equals("-")) {
+            Leaderboard leaderboard = new Leaderboard(Paths.get(args[6]), LEADERBOARD_BATCH);
+            server.setLeaderboard(leaderboard);
+            Runtime.getRuntime().addShutdownHook(new Thread(leaderboard::close));
+        }
+        if (args.length > 7 && !args[7].equals("-")) {
+            server.setSpectatorAddress(new InetSocketAddress(host, Integer.parseInt(args[7])), maxSessions);
+        }
+        server.start();
+        System.out.println("Treasure Hunter server listening on " + host.getHostAddress() + ":" + server.getPort()
+                + " (up to " + maxSessions + " players, " + idleSeconds + " s idle timeout)");
+        if (server.getSpectatorPort() >= 0) {
+            System.out.println("Spectators can watch on port " + server.getSpectatorPort());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * GameStats gathers the distributions a balancing run needs from the outcomes of many games.<p>
+ * It listens to the Outcome of every action and is told when each game ends. Per game it keeps the
+ * turns taken by games that were won, the gold each game ended with, the percentage of brawls won,
+ * and how many items broke or were lost in checkItemBreak; per dig it keeps the gold dug up, with
+ * dirt counting as 0. Each goes into a LogHistogram, so memory stays fixed however many games are
+ * played, and the totals beside them are exact.<p>
+ * Like the histograms, GameStats is meant for one thread: each thread plays its games into its
+ * own, and they are added together at the end.
+ */
+
+public class GameStats implements OutcomeListener {
+    // instance variables
+    private LogHistogram turnsToWin;
+    private LogHistogram finalGold;
+    private LogHistogram brawlsWonPercent;
+    private LogHistogram itemsBroken;
+    private LogHistogram goldPerDig;
+
+    private long brawlsWon;
+    private long brawlsLost;
+    private long itemsBrokenTotal;
+    private long itemsLostTotal;
+
+    // the game being played
+    private int gameBrawlsWon;
+    private int gameBrawlsLost;
+    private int gameItemsBroken;
+
+    public GameStats() {
+        turnsToWin = new LogHistogram();
+        finalGold = new LogHistogram();
+        brawlsWonPercent = new LogHistogram();
+        itemsBroken = new LogHistogram();
+        goldPerDig = new LogHistogram();
+    }
+
+    public void onOutcome(Outcome outcome) {
+        switch (outcome.getKind()) {
+            case BRAWL_WON:
+            case BRAWL_WON_WITH_SWORD:
+                gameBrawlsWon++;
+                break;
+            case BRAWL_LOST:
+                gameBrawlsLost++;
+                break;
+            case TOWN_LEFT_ITEM_BROKE:
+                gameItemsBroken++;
+                itemsBrokenTotal++;
+                break;
+            case TOWN_LEFT_ITEM_LOST:
+                gameItemsBroken++;
+                itemsLostTotal++;
+                break;
+            case GOLD_DUG:
+                goldPerDig.record(outcome.getGold());
+                break;
+            case DIRT:
+                goldPerDig.record(0);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Records the game that the outcomes since the last call belong to.
+     *
+     * @param game The finished game.
+     */
+    public void endGame(TreasureHunter game) {
+        if (game.getResult() == GameResult.WON) {
+            turnsToWin.record(game.getCount());
+        }
+        finalGold.record(game.getHunter().getGold());
+        int brawls = gameBrawlsWon + gameBrawlsLost;
+        if (brawls > 0) {
+            brawlsWonPercent.record(100L * gameBrawlsWon / brawls);
+        }
+        itemsBroken.record(gameItemsBroken);
+        brawlsWon += gameBrawlsWon;
+        brawlsLost += gameBrawlsLost;
+        gameBrawlsWon = 0;
+        gameBrawlsLost = 0;
+        gameItemsBroken = 0;
+    }
+
+    /**
+     * Adds everything gathered by another GameStats to this one.
+     *
+     * @param other The stats to add.
+     */
+    public void add(GameStats other) {
+        turnsToWin.add(other.turnsToWin);
+        finalGold.add(other.finalGold);
+        brawlsWonPercent.add(other.brawlsWonPercent);
+        itemsBroken.add(other.itemsBroken);
+        goldPerDig.add(other.goldPerDig);
+        brawlsWon += other.brawlsWon;
+        brawlsLost += other.brawlsLost;
+        itemsBrokenTotal += other.itemsBrokenTotal;
+        itemsLostTotal += other.itemsLostTotal;
+    }
+
+    public LogHistogram getTurnsToWin() {
+        return turnsToWin;
+    }
+
+    public LogHistogram getFinalGold() {
+        return finalGold;
+    }
+
+    public LogHistogram getBrawlsWonPercent() {
+        return brawlsWonPercent;
+    }
+
+    public LogHistogram getItemsBroken() {
+        return itemsBroken;
+    }
+
+    public LogHistogram getGoldPerDig() {
+        return goldPerDig;
+    }
+
+    /**
+     * @return The fraction of all brawls that were won.
+     */
+    public double brawlWinRatio() {
+        long brawls = brawlsWon + brawlsLost;
+        return brawls == 0 ? 0 : (double) brawlsWon / brawls;
+    }
+
+    /**
+     * @param label What the stats are of, such as the mode.
+     * @return The percentiles of every distribution, one per line.
+     */
+    public String summary(String label) {
+        return String.format("%s turns to win:    %s%n", label, turnsToWin)
+                + String.format("%s final gold:      %s%n", label, finalGold)
+                + String.format("%s brawls won %%:    %s; %d won, %d lost, ratio %.4f%n", label, brawlsWonPercent,
+                        brawlsWon, brawlsLost, brawlWinRatio())
+                + String.format("%s items broken:    %s; %d broke, %d lost%n", label, itemsBroken,
+                        itemsBrokenTotal, itemsLostTotal)
+                + String.format("%s gold per dig:    %s", label, goldPerDig);
+    }
+}
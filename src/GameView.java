@@ -0,0 +1,50 @@
+/**
+ * A read-only view of a game in progress, for bots deciding what to do next.
+ */
+
+public interface GameView {
+    /**
+     * @return The mode letter the game is played in.
+     */
+    String getMode();
+
+    /**
+     * @return The number of turns taken so far.
+     */
+    int getCount();
+
+    int getGold();
+
+    boolean hasItem(Item item);
+
+    boolean hasTreasure(Treasure treasure);
+
+    /**
+     * @return The item needed to cross the terrain around the current town.
+     */
+    Item getItemNeededToLeave();
+
+    boolean isToughTown();
+
+    /**
+     * @return true if the current town has already been hunted for treasure.
+     */
+    boolean isTownSearched();
+
+    /**
+     * @return true if the current town has already been dug for gold.
+     */
+    boolean isGoldSearched();
+
+    /**
+     * @param item An item.
+     * @return What the current town's shop charges for it, or 0 if it is not for sale.
+     */
+    int getPrice(Item item);
+
+    /**
+     * @param item An item.
+     * @return What the current town's shop pays for it.
+     */
+    int getBuyBackPrice(Item item);
+}
@@ -0,0 +1,426 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The HeadlessEngine plays many games of Treasure Hunter without a console.<p>
+ * Every game is driven by a bot Policy and writes its text nowhere, so the same
+ * TreasureHunter, Town and Shop logic can be run millions of times to balance the game.<p>
+ * Games are independent, so they are split across all cores on a work-stealing ForkJoinPool.
+ * Each game gets its own random source seeded from the run's seed and the game's number,
+ * so a seeded run plays exactly the same games no matter how the work is split.
+ */
+
+public class HeadlessEngine {
+    // constants
+    private static final int GAMES_PER_TASK = 1024;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long WORLD_SIZE = 1L << 40;
+    private static final int LEADERBOARD_BATCH = 1 << 16;
+
+    // instance variables
+    private String mode;
+    private int maxTurns;
+    private long seed;
+    private PolicyFactory bots;
+    private ForkJoinPool pool;
+    private EventJournal journal;
+    private World world;
+    private Rules rules;
+    private Leaderboard leaderboard;
+
+    /**
+     * @param mode The mode letter every game is played in.
+     * @param maxTurns The number of turns a bot plays before giving up.
+     * @param seed The seed the whole run is derived from.
+     * @param parallelism The number of threads to play on.
+     */
+    public HeadlessEngine(String mode, int maxTurns, long seed, int parallelism) {
+        this(RandomPolicy::new, mode, maxTurns, seed, new ForkJoinPool(parallelism));
+    }
+
+    /**
+     * @param bots Creates the bot that plays each game.
+     * @param mode The mode letter every game is played in.
+     * @param maxTurns The number of turns a bot plays before giving up.
+     * @param seed The seed the whole run is derived from.
+     * @param pool The pool to play on, which may be shared with other engines.
+     */
+    public HeadlessEngine(PolicyFactory bots, String mode, int maxTurns, long seed, ForkJoinPool pool) {
+        this.bots = bots;
+        this.mode = mode;
+        this.maxTurns = maxTurns;
+        this.seed = seed;
+        this.pool = pool;
+        rules = Rules.STANDARD;
+    }
+
+    /**
+     * Plays a single game with no console input or output.
+     *
+     * @param policy The bot making the decisions.
+     * @param rng The random source for the game.
+     * @return The finished game.
+     */
+    public static TreasureHunter playOne(Policy policy, SplittableRandom rng) {
+        return playOne(policy, rng, GameListener.NONE);
+    }
+
+    /**
+     * Plays a single game with no console input or output, reporting its events.
+     *
+     * @param policy The bot making the decisions.
+     * @param rng The random source for the game.
+     * @param listener Told about every event in the game.
+     * @return The finished game.
+     */
+    public static TreasureHunter playOne(Policy policy, SplittableRandom rng, GameListener listener) {
+        return playOne(policy, rng, listener, null);
+    }
+
+    /**
+     * Plays a single game on a world map with no console input or output, reporting its events.
+     *
+     * @param policy The bot making the decisions.
+     * @param rng The random source for the game.
+     * @param listener Told about every event in the game.
+     * @param world The map to play on, or null for towns rolled at random.
+     * @return The finished game.
+     */
+    public static TreasureHunter playOne(Policy policy, SplittableRandom rng, GameListener listener, World world) {
+        return playOne(policy, rng, listener, world, OutcomeListener.NONE, Rules.STANDARD);
+    }
+
+    /**
+     * Plays a single game on a world map by the given Rules with no console input or output,
+     * reporting its events and outcomes.
+     *
+     * @param policy The bot making the decisions.
+     * @param rng The random source for the game.
+     * @param listener Told about every event in the game.
+     * @param world The map to play on, or null for towns rolled at random.
+     * @param outcomes Told the outcome of every action in town.
+     * @param rules The numbers the game is balanced by.
+     * @return The finished game.
+     */
+    public static TreasureHunter playOne(Policy policy, SplittableRandom rng, GameListener listener, World world,
+                                         OutcomeListener outcomes, Rules rules) {
+        TreasureHunter game = new TreasureHunter(policy, Renderer.headless(), rng);
+        game.setListener(listener);
+        game.setOutcomeListener(outcomes);
+        game.setRules(rules);
+        if (world != null) {
+            game.setWorld(world);
+        }
+        game.play();
+        return game;
+    }
+
+    /**
+     * Creates the random source for one game of a run.<p>
+     * The run seed and game number are scrambled together so that neighbouring games
+     * start far apart in the generator's sequence instead of overlapping.
+     *
+     * @param seed The seed of the whole run.
+     * @param game The number of the game within the run.
+     * @return A random source used by that game only.
+     */
+    public static SplittableRandom gameRandom(long seed, long game) {
+        long z = seed + (game + 1) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return new SplittableRandom(z ^ (z >>> 33));
+    }
+
+    /**
+     * Plays the given number of games across the pool.
+     *
+     * @param games How many games to play.
+     * @return The totals of all games.
+     */
+    public Tally run(long games) {
+        return pool.invoke(new Batch(0, games));
+    }
+
+    /**
+     * @param games How many games to play.
+     * @return A task that plays them when invoked or forked on the pool, for running several engines at once.
+     */
+    public RecursiveTask<Tally> task(long games) {
+        return new Batch(0, games);
+    }
+
+    /**
+     * @param journal Records every event of every game, with the game number as the session id.
+     */
+    public void setJournal(EventJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @param world The map every game is played on; all games share it.
+     */
+    public void setWorld(World world) {
+        this.world = world;
+    }
+
+    /**
+     * @param rules The numbers every game is balanced by.
+     */
+    public void setRules(Rules rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * @param leaderboard Records every game played.
+     */
+    public void setLeaderboard(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * The totals of a number of finished games.<p>
+     * Besides the sums it keeps the sums of squares of turns and gold, and a histogram of the
+     * gold each game ended with, so that spreads, confidence intervals and quantiles can be
+     * worked out after tallies from many threads have been added together.<p>
+     * Its GameStats listens to the outcomes of the games, for the distributions behind the averages.
+     */
+    public static class Tally {
+        // constants
+        public static final int LOWEST_GOLD = -64;
+        public static final int HIGHEST_GOLD = 1023;
+        private static final double Z95 = 1.96;
+
+        public long games;
+        public long won;
+        public long broke;
+        public long quit;
+        public long turns;
+        public long gold;
+        public long turnsSquared;
+        public long goldSquared;
+        // games ending with each amount of gold, clamped to the range above
+        public long[] goldCounts = new long[HIGHEST_GOLD - LOWEST_GOLD + 1];
+        public GameStats stats = new GameStats();
+
+        public void add(TreasureHunter game) {
+            add(game.getResult(), game.getCount(), game.getHunter().getGold());
+            stats.endGame(game);
+        }
+
+        /**
+         * Adds a game that was not played as a TreasureHunter object, such as one from the PopulationSimulator.
+         * It is not seen by the GameStats.
+         *
+         * @param result How the game finished.
+         * @param count The turns it took.
+         * @param hunterGold The gold it ended with.
+         */
+        public void add(GameResult result, int count, int hunterGold) {
+            games++;
+            turns += count;
+            turnsSquared += (long) count * count;
+            gold += hunterGold;
+            goldSquared += (long) hunterGold * hunterGold;
+            goldCounts[Math.max(LOWEST_GOLD, Math.min(HIGHEST_GOLD, hunterGold)) - LOWEST_GOLD]++;
+            if (result == GameResult.WON) {
+                won++;
+            } else if (result == GameResult.BROKE) {
+                broke++;
+            } else {
+                quit++;
+            }
+        }
+
+        public void add(Tally other) {
+            games += other.games;
+            won += other.won;
+            broke += other.broke;
+            quit += other.quit;
+            turns += other.turns;
+            gold += other.gold;
+            turnsSquared += other.turnsSquared;
+            goldSquared += other.goldSquared;
+            for (int i = 0; i < goldCounts.length; i++) {
+                goldCounts[i] += other.goldCounts[i];
+            }
+            stats.add(other.stats);
+        }
+
+        public double winRate() {
+            return (double) won / games;
+        }
+
+        /**
+         * The Wilson score interval is used instead of the normal approximation
+         * because win rates are often close to 0, where that approximation breaks down.
+         *
+         * @return The low and high ends of the 95% confidence interval of the win rate.
+         */
+        public double[] winRateInterval() {
+            double p = winRate();
+            double z2 = Z95 * Z95 / games;
+            double centre = (p + z2 / 2) / (1 + z2);
+            double half = Z95 * Math.sqrt(p * (1 - p) / games + z2 / (4 * games)) / (1 + z2);
+            return new double[] {centre - half, centre + half};
+        }
+
+        public double meanTurns() {
+            return (double) turns / games;
+        }
+
+        /**
+         * @return Half the width of the 95% confidence interval of the mean turns.
+         */
+        public double turnsMargin() {
+            return margin(turns, turnsSquared);
+        }
+
+        public double meanGold() {
+            return (double) gold / games;
+        }
+
+        /**
+         * @return Half the width of the 95% confidence interval of the mean gold.
+         */
+        public double goldMargin() {
+            return margin(gold, goldSquared);
+        }
+
+        /**
+         * @param q The quantile wanted, between 0 and 1.
+         * @return The gold that fraction of games ended with or less, clamped to LOWEST_GOLD and HIGHEST_GOLD.
+         */
+        public int goldQuantile(double q) {
+            long rank = (long) Math.ceil(q * games);
+            long seen = 0;
+            for (int i = 0; i < goldCounts.length; i++) {
+                seen += goldCounts[i];
+                if (seen >= rank && seen > 0) {
+                    return i + LOWEST_GOLD;
+                }
+            }
+            return HIGHEST_GOLD;
+        }
+
+        private double margin(long sum, long sumSquared) {
+            if (games < 2) {
+                return Double.NaN;
+            }
+            double mean = (double) sum / games;
+            double variance = Math.max(0, ((double) sumSquared - mean * sum) / (games - 1));
+            return Z95 * Math.sqrt(variance / games);
+        }
+
+        public String toString() {
+            return games + " games: " + won + " won, " + broke + " broke, " + quit + " quit, "
+                    + String.format("%.2f", meanTurns()) + " turns and "
+                    + String.format("%.2f", meanGold()) + " gold on average";
+        }
+    }
+
+    /**
+     * A range of games that splits itself in half until it is small enough to play on one thread.
+     */
+    @SuppressWarnings("serial")
+    private class Batch extends RecursiveTask<Tally> {
+        private long from;
+        private long to;
+
+        Batch(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        protected Tally compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                Tally tally = new Tally();
+                for (long i = from; i < to; i++) {
+                    SplittableRandom rng = gameRandom(seed, i);
+                    GameListener listener = journal == null ? GameListener.NONE : journal.session(i);
+                    TreasureHunter game = playOne(bots.create(mode, maxTurns, rng.split()), rng, listener, world, tally.stats, rules);
+                    if (leaderboard != null) {
+                        leaderboard.add(game);
+                    }
+                    tally.add(game);
+                }
+                return tally;
+            }
+            long middle = (from + to) >>> 1;
+            Batch left = new Batch(from, middle);
+            left.fork();
+            Tally tally = new Batch(middle, to).compute();
+            tally.add(left.join());
+            return tally;
+        }
+    }
+
+    private static String readRules(String file) {
+        try {
+            return new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Usage: java HeadlessEngine [games] [mode] [maxTurns] [threads] [seed] [journalDirectory] [worldSeed] [leaderboardDirectory] [rulesFile]<p>
+     * A journal directory, world seed or leaderboard directory of "-" plays without one. The rules file
+     * holds Rules as the Balancer prints them.
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        String mode = args.length > 1 ? args[1] : "n";
+        int maxTurns = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+
+        HeadlessEngine engine = new HeadlessEngine(mode, maxTurns, seed, threads);
+        EventJournal journal = null;
+        if (args.length > 5 && !args[5].equals("-")) {
+            journal = new EventJournal(Paths.get(args[5]), 1 << 20, 100);
+            engine.setJournal(journal);
+        }
+        World world = null;
+        if (args.length > 6 && !args[6].equals("-")) {
+            world = new World(Long.parseLong(args[6]), WORLD_SIZE);
+            engine.setWorld(world);
+        }
+        if (args.length > 8) {
+            engine.setRules(Rules.parse(readRules(args[8])));
+        }
+        Leaderboard leaderboard = null;
+        if (args.length > 7 && !args[7].equals("-")) {
+            leaderboard = new Leaderboard(Paths.get(args[7]), LEADERBOARD_BATCH);
+            engine.setLeaderboard(leaderboard);
+        }
+        long start = System.nanoTime();
+        Tally tally = engine.run(games);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        engine.shutdown();
+        if (journal != null) {
+            journal.close();
+            System.out.printf("%d events journaled, %.0f events/sec%n", journal.size(), journal.size() / seconds);
+        }
+        if (leaderboard != null) {
+            leaderboard.close();
+            System.out.println(leaderboard.size() + " games on the leaderboard");
+        }
+
+        System.out.println("seed " + seed + ": " + tally);
+        System.out.println(tally.stats.summary(mode));
+        if (world != null) {
+            System.out.println(world.getVisitedCount() + " towns visited in world " + world.getSeed());
+        }
+        System.out.printf("%.3f s on %d threads, %.0f games/sec%n", seconds, threads, games / seconds);
+    }
+}
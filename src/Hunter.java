@@ -1,18 +1,49 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Hunter Class<br /><br />
- * This class represents the treasure hunter character (the player) in the Treasure Hunt game.
+ * This class represents the treasure hunter character (the player) in the Treasure Hunt game.<p>
+ * The gold, kit and treasures are packed into one long, so that every change to them, such as
+ * paying for an item and putting it in the kit, is a single compare-and-set. In a shared World
+ * other hunters' threads take gold in brawls, and no lock is needed for that.
  * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
  */
 
 public class Hunter {
+    // constants
+    /** The most characters a name may have; at no more than three UTF-8 bytes each, it always fits a snapshot. */
+    public static final int MAX_NAME_LENGTH = 64;
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+    private static final VarHandle STATE;
+    private static final long GOLD = 0xFFFFFFFFL;
+    private static final int KIT_SHIFT = 32;
+    private static final long KIT = 0xFFFFL << KIT_SHIFT;
+    private static final int TREASURE_SHIFT = 48;
+
+    // printable kits and treasures, shared by every hunter since there are only a few hundred of them
+    private static final String[] INVENTORIES = new String[1 << Item.count()];
+    private static final String[] TREASURES = new String[Treasure.ALL + 1];
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(Hunter.class, "state", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     //instance variables
     private String hunterName;
-    private String[] kit;
+    private volatile long state; // gold in the low 32 bits, then one bit per Item from bit 32, then one per Treasure from bit 48
 
-    private String[] treasure;
+    // the printable hunter, rebuilt only after the state it shows has changed
+    private Printed printableHunter;
 
-    private String[] endGoal;
-    private int gold;
+    private Runnable victoryListener;
+    private GameListener listener;
 
     /**
      * The base constructor of a Hunter assigns the name to the hunter and an empty kit.
@@ -22,10 +53,8 @@ public class Hunter {
      */
     public Hunter(String hunterName, int startingGold) {
         this.hunterName = hunterName;
-        kit = new String[100]; // only 5 possible items can be stored in kit
-        gold = startingGold;
-        treasure = new String[100];
-        endGoal = new String[]{"crown", "trophy", "gem"};
+        state = startingGold & GOLD;
+        listener = GameListener.NONE;
     }
 
     //Accessors
@@ -33,7 +62,7 @@ public class Hunter {
         return hunterName;
     }
     public int getGold() {
-        return gold;
+        return (int) state;
     }
 
     /**
@@ -42,7 +71,36 @@ public class Hunter {
      * @param modifier Amount to modify gold by.
      */
     public void changeGold(int modifier) {
-        gold += modifier;
+        if (modifier != 0) {
+            long old;
+            long changed;
+            do {
+                old = state;
+                changed = withGold(old, (int) old + modifier);
+            } while (!STATE.compareAndSet(this, old, changed));
+            listener.onEvent(GameEvent.GOLD_CHANGED, -1, modifier, (int) changed);
+        }
+    }
+
+    /**
+     * Takes up to the given gold from the hunter, for a brawl lost to another hunter.
+     * A hunter who is already broke has nothing to give.
+     *
+     * @param amount The most gold to take.
+     * @return The gold taken.
+     */
+    public int takeGold(int amount) {
+        long old;
+        int taken;
+        do {
+            old = state;
+            taken = Math.max(0, Math.min(amount, (int) old));
+            if (taken == 0) {
+                return 0;
+            }
+        } while (!STATE.compareAndSet(this, old, withGold(old, (int) old - taken)));
+        listener.onEvent(GameEvent.GOLD_CHANGED, -1, -taken, (int) old - taken);
+        return taken;
     }
 
     /**
@@ -53,15 +111,25 @@ public class Hunter {
      * @return true if the item is successfully bought.
      */
     public boolean buyItem(String item, int costOfItem) {
-        if ((costOfItem == 0 && hasItemInKit("sword")) || gold < costOfItem || hasItemInKit(item)) {
+        Item found = Item.find(item);
+        if (found == null) {
             return false;
         }
-
-        gold -= costOfItem;
-        if(item.equals("sword")){
-            gold++;
-        }
-        addItem(item);
+        long old;
+        int gold;
+        do {
+            old = state;
+            long kit = kit(old);
+            gold = (int) old;
+            if ((costOfItem == 0 && (kit & Item.SWORD.bit()) != 0) || gold < costOfItem || (kit & found.bit()) != 0) {
+                return false;
+            }
+            gold -= costOfItem;
+            if(found == Item.SWORD){
+                gold++;
+            }
+            // the gold and the item change together, so nobody ever sees one without the other
+        } while (!STATE.compareAndSet(this, old, withGold(old, gold) | found.bit() << KIT_SHIFT));
         return true;
     }
 
@@ -74,182 +142,296 @@ public class Hunter {
      * @return true if the item was successfully sold.
      */
     public boolean sellItem(String item, int buyBackPrice) {
-        if (buyBackPrice <= 0 || !hasItemInKit(item)) {
+        Item found = Item.find(item);
+        if (buyBackPrice <= 0 || found == null) {
             return false;
         }
-
-        gold += buyBackPrice;
-        removeItemFromKit(item);
+        long old;
+        do {
+            old = state;
+            if ((kit(old) & found.bit()) == 0) {
+                return false;
+            }
+        } while (!STATE.compareAndSet(this, old, withGold(old, (int) old + buyBackPrice) & ~(found.bit() << KIT_SHIFT)));
         return true;
     }
 
     /**
-     * Removes an item from the kit by setting the index of the item to null.
+     * Removes an item from the kit by clearing its bit.
      *
      * @param item The item to be removed.
      */
     public void removeItemFromKit(String item) {
-        int itmIdx = findItemInKit(item);
+        Item found = Item.find(item);
 
         // if item is found
-        if (itmIdx >= 0) {
-            kit[itmIdx] = null;
+        if (found != null) {
+            removeItemFromKit(found);
         }
     }
 
+    public void removeItemFromKit(Item item) {
+        long old;
+        do {
+            old = state;
+        } while (!STATE.compareAndSet(this, old, old & ~(item.bit() << KIT_SHIFT)));
+    }
+
     /**
      * Checks to make sure that the item is not already in the kit.
-     * If not, it assigns the item to an index in the kit with a null value ("empty" position).
+     * If not, it sets the item's bit in the kit.
      *
      * @param item The item to be added to the kit.
      * @return true if the item is not in the kit and has been added.
      */
     public boolean addItem(String item) {
-        if (!hasItemInKit(item)) {
-            int idx = emptyPositionInKit();
-            kit[idx] = item;
-            return true;
-        }
-        System.out.println("You have already found this item!");
-        return false;
+        Item found = Item.find(item);
+        return found != null && addItem(found);
     }
 
-    public boolean hasTreasureInKit(String Treasure) {
-        for (String tmpItem : treasure)
-            if (treasure.equals(tmpItem)) {
-                // early return
-                return true;
+    public boolean addItem(Item item) {
+        long old;
+        do {
+            old = state;
+            if ((kit(old) & item.bit()) != 0) {
+                return false;
             }
+        } while (!STATE.compareAndSet(this, old, old | item.bit() << KIT_SHIFT));
+        return true;
+    }
+
+    public boolean hasTreasureInKit(String treas) {
+        Treasure found = Treasure.find(treas);
+        return found != null && hasTreasureInKit(found);
+    }
 
-        return false;
+    public boolean hasTreasureInKit(Treasure treas) {
+        return (getTreasures() & treas.bit()) != 0;
     }
 
-    public boolean addTreasure(String treas) {
-        if (!hasTreasureInKit(treas)) {
-            int idx = emptyPositionInTreasury();
-            treasure[idx] = treas;
-            return true;
+    /**
+     * Adds a treasure to the hunter's collection.<p>
+     * When it is the last one missing, the victory listener is told; since a treasure
+     * can only be added once, that happens exactly once per hunter, even when threads race.
+     *
+     * @param treas The treasure found.
+     * @return true if the treasure was not already collected.
+     */
+    public boolean addTreasure(Treasure treas) {
+        long old;
+        long found;
+        do {
+            old = state;
+            if ((treasures(old) & treas.bit()) != 0) {
+                return false;
+            }
+            found = old | (long) treas.bit() << TREASURE_SHIFT;
+        } while (!STATE.compareAndSet(this, old, found));
+        listener.onEvent(GameEvent.TREASURE_FOUND, treas.ordinal(), 0, (int) found);
+        if (treasures(found) == Treasure.ALL) {
+            listener.onEvent(GameEvent.VICTORY, -1, 0, (int) found);
+            if (victoryListener != null) {
+                victoryListener.run();
+            }
         }
-        System.out.println("You have already found this treasure!");
-        return false;
+        return true;
     }
 
     /**
-     * Checks if the kit Array has the specified item.
+     * @return true once the hunter has found every treasure.
+     */
+    public boolean hasAllTreasures() {
+        return getTreasures() == Treasure.ALL;
+    }
+
+    /**
+     * @param listener Told about everything that happens to this hunter.
+     */
+    public void setListener(GameListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Reports something that happened to this hunter, along with the gold balance.
+     *
+     * @param event What happened.
+     * @param subject The ordinal of the Item or Treasure involved, or -1.
+     * @param amount The gold involved.
+     */
+    public void record(GameEvent event, int subject, int amount) {
+        listener.onEvent(event, subject, amount, getGold());
+    }
+
+    /**
+     * @param victoryListener Called once, when the hunter finds the last treasure.
+     */
+    public void setVictoryListener(Runnable victoryListener) {
+        this.victoryListener = victoryListener;
+    }
+
+    /**
+     * Checks if the kit has the specified item.
      *
      * @param item The search item
      * @return true if the item is found.
      */
     public boolean hasItemInKit(String item) {
-        for (String tmpItem : kit) {
-            if (item.equals(tmpItem)) {
-                // early return
-                return true;
-            }
-        }
+        Item found = Item.find(item);
+        return found != null && hasItemInKit(found);
+    }
+
+    public boolean hasItemInKit(Item item) {
+        return (getKit() & item.bit()) != 0;
+    }
 
-        return false;
+    /**
+     * @return The kit as a bitmask with one bit per Item.
+     */
+    public long getKit() {
+        return kit(state);
+    }
+
+    /**
+     * @return The treasures found as a bitmask with one bit per Treasure.
+     */
+    public int getTreasures() {
+        return treasures(state);
     }
 
      /**
      * Returns a printable representation of the inventory, which
-     * is a list of the items in kit, with a space between each item.
+     * is a list of the items in kit, with a space between each item.<p>
+     * The string is built once per kit and shared.
      *
      * @return The printable String representation of the inventory.
      */
     public String getInventory() {
-        String printableKit = "";
-        String space = " ";
+        return inventory(getKit());
+    }
 
-        for (String item : kit) {
-            if (item != null) {
-                printableKit += "\033[0;35m" + item + "\033[0m"+ space;
+    private static String inventory(long kit) {
+        String printableInventory = INVENTORIES[(int) kit];
+        if (printableInventory == null) {
+            StringBuilder printableKit = new StringBuilder();
+            for (Item item : Item.values()) {
+                if ((kit & item.bit()) != 0) {
+                    printableKit.append(Colors.PURPLE).append(item.getItemName()).append(Colors.RESET).append(' ');
+                }
             }
+            // Strings are immutable, so racing threads at worst build the same one twice
+            printableInventory = printableKit.toString();
+            INVENTORIES[(int) kit] = printableInventory;
         }
-
-        return printableKit;
+        return printableInventory;
     }
 
+    /**
+     * Returns the treasures found, with a space between each one.<p>
+     * The string is built once per set of treasures and shared.
+     *
+     * @return The printable String representation of the treasures.
+     */
     public String getTreasure() {
-        String printableKit = "";
-        String space = " ";
+        return treasure(getTreasures());
+    }
 
-        for (String item : treasure) {
-            if (item != null) {
-                printableKit += "\033[0;35m" + item + "\033[0m"+ space;
+    private static String treasure(int treasures) {
+        String printableTreasure = TREASURES[treasures];
+        if (printableTreasure == null) {
+            StringBuilder printableKit = new StringBuilder();
+            for (Treasure item : Treasure.values()) {
+                if ((treasures & item.bit()) != 0) {
+                    printableKit.append(Colors.PURPLE).append(item.getTreasureName()).append(Colors.RESET).append(' ');
+                }
             }
+            printableTreasure = printableKit.toString();
+            TREASURES[treasures] = printableTreasure;
         }
-
-        return printableKit;
+        return printableTreasure;
     }
 
     /**
+     * The string is cached until the hunter's gold, kit or treasures change.
+     *
      * @return A string representation of the hunter.
      */
     public String toString() {
-
-        String str = hunterName + " has " + "\033[0;33m" + gold + " gold" + "\033[0m";
-        if (!kitIsEmpty()) {
-            str += " and " + getInventory();
+        long shown = state;
+        Printed printed = printableHunter;
+        if (printed == null || printed.state != shown) {
+            String str = hunterName + " has " + Colors.YELLOW + (int) shown + " gold" + Colors.RESET;
+            if (kit(shown) != 0) {
+                str += " and " + inventory(kit(shown));
+            }
+            str += "\n" + "Treasures found: " + treasure(treasures(shown));
+            printed = new Printed(shown, str);
+            printableHunter = printed;
         }
-        str += "\n" + "Treasures found: " + getTreasure();
-        return str;
+        return printed.text;
     }
 
     /**
-     * Searches kit Array for the index of the specified value.
+     * Writes the hunter's name, gold, kit and treasures for a session snapshot.
      *
-     * @param item String to look for.
-     * @return The index of the item, or -1 if not found.
+     * @param snapshot The buffer to write to.
      */
-    private int findItemInKit(String item) {
-        for (int i = 0; i < kit.length; i++) {
-            String tmpItem = kit[i];
-
-            if (item.equals(tmpItem)) {
-                return i;
-            }
+    public void writeTo(ByteBuffer snapshot) {
+        byte[] name = hunterName.getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_BYTES) {
+            throw new IllegalStateException("hunter name too long for a snapshot: " + name.length + " bytes");
         }
-
-        return -1;
+        snapshot.putShort((short) name.length);
+        snapshot.put(name);
+        long saved = state;
+        snapshot.putInt((int) saved);
+        snapshot.put((byte) kit(saved));
+        snapshot.put((byte) treasures(saved));
     }
 
     /**
-     * Check if the kit is empty - meaning all elements are null.
+     * Reads back a hunter written by writeTo().
      *
-     * @return true if kit is completely empty.
+     * @param snapshot The buffer to read from.
+     * @return The restored hunter.
+     * @throws IllegalArgumentException If the name runs past the end of the snapshot.
      */
-    private boolean kitIsEmpty() {
-        for (String string : kit) {
-            if (string != null) {
-                return false;
-            }
+    public static Hunter readFrom(ByteBuffer snapshot) {
+        int length = snapshot.getShort() & MAX_NAME_BYTES;
+        if (length > snapshot.remaining()) {
+            throw new IllegalArgumentException("hunter name of " + length + " bytes runs past the end of the snapshot");
         }
+        byte[] name = new byte[length];
+        snapshot.get(name);
+        Hunter hunter = new Hunter(new String(name, StandardCharsets.UTF_8), snapshot.getInt());
+        long kit = snapshot.get() & 0xFF;
+        long treasures = snapshot.get() & 0xFF;
+        hunter.state |= kit << KIT_SHIFT | treasures << TREASURE_SHIFT;
+        return hunter;
+    }
 
-        return true;
+    private static long withGold(long state, int gold) {
+        return (state & ~GOLD) | (gold & GOLD);
+    }
+
+    private static long kit(long state) {
+        return (state & KIT) >>> KIT_SHIFT;
+    }
+
+    private static int treasures(long state) {
+        return (int) (state >>> TREASURE_SHIFT);
     }
 
     /**
-     * Finds the first index where there is a null value.
-     *
-     * @return index of empty index, or -1 if not found.
+     * A printed hunter together with the state it shows. Both fields are final, so another
+     * thread sees either the whole of it or the one before.
      */
-    private int emptyPositionInKit() {
-        for (int i = 0; i < kit.length; i++) {
-            if (kit[i] == null) {
-                return i;
-            }
-        }
+    private static class Printed {
+        final long state;
+        final String text;
 
-        return -1;
-    }
-    private int emptyPositionInTreasury() {
-        for (int i = 0; i < treasure.length; i++) {
-            if (treasure[i] == null) {
-                return i;
-            }
+        Printed(long state, String text) {
+            this.state = state;
+            this.text = text;
         }
-
-        return -1;
     }
-}
\ No newline at end of file
+}
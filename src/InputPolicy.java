@@ -0,0 +1,95 @@
+/**
+ * The InputPolicy lets a person play the game: every decision is simply the next word
+ * from the session's InputSource, in lowercase.<p>
+ * Several answers can be typed on one line, separated by spaces or semicolons, such as
+ * "b shovel y; d; m" to buy a shovel, dig and move on. They are used one at a time as the game
+ * asks for them, and the game shows nothing until they run out, so a remote player's whole turn
+ * is one round trip. An empty line is still one (empty) answer.<p>
+ * When the input runs out the player is treated as having given up the hunt. A source that can tell
+ * a hang-up from the end of the input throws instead, so the game is left in progress.
+ */
+
+public class InputPolicy implements Policy {
+    // instance variables
+    private InputSource input;
+    private String line; // the line being worked through, or null
+    private int position; // where the next word of the line starts
+
+    /**
+     * @param input Where this session's lines come from.
+     */
+    public InputPolicy(InputSource input) {
+        this.input = input;
+    }
+
+    /**
+     * The name is the rest of the line, so it may have spaces in it.
+     */
+    public String hunterName() {
+        if (hasPendingInput()) {
+            String name = line.substring(position).trim();
+            line = null;
+            return name;
+        }
+        String name = input.nextLine();
+        return name == null ? "" : name.toLowerCase();
+    }
+
+    public String mode() {
+        return next("");
+    }
+
+    public String nextMove() {
+        return next("x");
+    }
+
+    public String chooseItem(boolean buying) {
+        return next("");
+    }
+
+    public boolean confirm(String item, int cost, boolean buying) {
+        return next("n").equals("y");
+    }
+
+    public boolean hasPendingInput() {
+        return line != null && skipSeparators(position) < line.length();
+    }
+
+    private String next(String atEnd) {
+        if (!hasPendingInput()) {
+            String read = input.nextLine();
+            if (read == null) {
+                line = null;
+                return atEnd;
+            }
+            line = read.toLowerCase();
+            position = 0;
+            if (skipSeparators(0) == line.length()) {
+                line = null;
+                return "";
+            }
+        }
+        int start = skipSeparators(position);
+        int end = start;
+        while (end < line.length() && !isSeparator(line.charAt(end))) {
+            end++;
+        }
+        position = end;
+        if (start == 0 && end == line.length()) {
+            // a line holding a single word, which is how most answers come
+            return line;
+        }
+        return line.substring(start, end);
+    }
+
+    private int skipSeparators(int from) {
+        while (from < line.length() && isSeparator(line.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ';' || Character.isWhitespace(c);
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * An InputSource supplies the lines a player types, one at a time.<p>
+ * Each game session gets its own source, so several sessions never compete for one stream.
+ */
+
+public interface InputSource {
+    /**
+     * @return The next line without its line ending, or null when there is no more input.
+     */
+    String nextLine();
+}
@@ -0,0 +1,73 @@
+/**
+ * The items a hunter can carry in the Treasure Hunter game.<p>
+ * Each item owns one bit, so a whole kit fits in a single long.
+ */
+
+public enum Item {
+    WATER("water"),
+    ROPE("rope"),
+    MACHETE("machete"),
+    HORSE("horse"),
+    BOAT("boat"),
+    BOOTS("boots"),
+    SHOVEL("shovel"),
+    SWORD("sword");
+
+    // static variables
+    private static final Item[] ITEMS = values();
+
+    // instance variables
+    private final String itemName;
+    private final long bit;
+
+    Item(String itemName) {
+        this.itemName = itemName;
+        bit = 1L << ordinal();
+    }
+
+    public String getItemName() {
+        return itemName;
+    }
+
+    /**
+     * @return The bit this item occupies in a kit.
+     */
+    public long bit() {
+        return bit;
+    }
+
+    /**
+     * @param index The ordinal of an item.
+     * @return The item with that ordinal.
+     */
+    public static Item of(int index) {
+        return ITEMS[index];
+    }
+
+    /**
+     * @return The number of different items.
+     */
+    public static int count() {
+        return ITEMS.length;
+    }
+
+    /**
+     * Looks up an item by the name a player types.
+     *
+     * @param name The lowercase item name.
+     * @return The item, or null if there is no item with that name.
+     */
+    public static Item find(String name) {
+        switch (name) {
+            case "water": return WATER;
+            case "rope": return ROPE;
+            case "machete": return MACHETE;
+            case "horse": return HORSE;
+            case "boat": return BOAT;
+            case "boots": return BOOTS;
+            case "shovel": return SHOVEL;
+            case "sword": return SWORD;
+            default: return null;
+        }
+    }
+}
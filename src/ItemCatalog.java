@@ -0,0 +1,148 @@
+/**
+ * The ItemCatalog holds the prices of every item sold in the Treasure Hunter game.<p>
+ * It is immutable; the STANDARD catalog is built once per JVM and shared by every Shop, which only
+ * keeps a bitmask of which items it has in stock, and Rules with other prices build one of their own.
+ * Prices are stored in arrays indexed by Item ordinal, and buy-back prices are precomputed for each
+ * markdown level the game uses.
+ */
+
+public class ItemCatalog {
+    // constants
+    private static final int WATER_COST = 2;
+    private static final int ROPE_COST = 4;
+    private static final int MACHETE_COST = 6;
+    private static final int HORSE_COST = 12;
+    private static final int BOAT_COST = 20;
+    private static final int BOOTS_COST = 10;
+    private static final int SHOVEL_COST = 8;
+    private static final int SWORD_COST = 0;
+
+    private static final double[] MARKDOWNS = {0, 0.25, 0.5};
+
+    /** The catalog of the standard prices, which every shop uses unless its Rules say otherwise. */
+    public static final ItemCatalog STANDARD = new ItemCatalog(standardPrices());
+
+    // instance variables
+    private final int[] listedPrices;
+    private final int[] buyPrices;
+    private final int[][] buyBackPrices;
+    private final String[] listings;
+    private final long standardStock;
+    private final String standardInventory;
+    private final String samuraiInventory;
+
+    /**
+     * @param listedPrices The price of every item, by Item ordinal, as the shop lists it.
+     */
+    public ItemCatalog(int[] listedPrices) {
+        this.listedPrices = listedPrices.clone();
+
+        // the sword is free, but a cost of 0 means "not for sale", so it is bought for 1 gold
+        // which the hunter gets back when it is added to the kit
+        buyPrices = listedPrices.clone();
+        buyPrices[Item.SWORD.ordinal()] = listedPrices[Item.SWORD.ordinal()] + 1;
+
+        buyBackPrices = new int[MARKDOWNS.length][];
+        for (int level = 0; level < MARKDOWNS.length; level++) {
+            buyBackPrices[level] = markDown(MARKDOWNS[level]);
+        }
+
+        listings = new String[Item.count()];
+        for (Item item : Item.values()) {
+            String name = item.getItemName();
+            String displayName = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            listings[item.ordinal()] = Colors.PURPLE + displayName + ": " + Colors.RESET + listedPrices[item.ordinal()] + " gold\n";
+        }
+
+        standardStock = Item.WATER.bit() | Item.ROPE.bit() | Item.MACHETE.bit() | Item.HORSE.bit()
+                | Item.BOAT.bit() | Item.BOOTS.bit() | Item.SHOVEL.bit();
+        standardInventory = buildInventory(standardStock);
+        samuraiInventory = buildInventory(standardStock | Item.SWORD.bit());
+    }
+
+    private static int[] standardPrices() {
+        int[] prices = new int[Item.count()];
+        prices[Item.WATER.ordinal()] = WATER_COST;
+        prices[Item.ROPE.ordinal()] = ROPE_COST;
+        prices[Item.MACHETE.ordinal()] = MACHETE_COST;
+        prices[Item.HORSE.ordinal()] = HORSE_COST;
+        prices[Item.BOAT.ordinal()] = BOAT_COST;
+        prices[Item.BOOTS.ordinal()] = BOOTS_COST;
+        prices[Item.SHOVEL.ordinal()] = SHOVEL_COST;
+        prices[Item.SWORD.ordinal()] = SWORD_COST;
+        return prices;
+    }
+
+    /**
+     * @param item An item.
+     * @return Its price as the shop lists it.
+     */
+    public int listedPrice(Item item) {
+        return listedPrices[item.ordinal()];
+    }
+
+    /**
+     * @return The items every shop has in stock, as a bitmask with one bit per Item.
+     */
+    public long getStandardStock() {
+        return standardStock;
+    }
+
+    /**
+     * @param item The item being bought.
+     * @return The price of the item, ignoring whether it is in stock.
+     */
+    public int buyPrice(Item item) {
+        return buyPrices[item.ordinal()];
+    }
+
+    /**
+     * Returns the buy-back prices for a markdown, indexed by Item ordinal.<p>
+     * The markdown levels used by the game are precomputed and shared; any other markdown gets a new table.
+     *
+     * @param markdown Percentage of markdown for selling items in decimal format.
+     * @return The table of buy-back prices.
+     */
+    public int[] buyBackPrices(double markdown) {
+        for (int level = 0; level < MARKDOWNS.length; level++) {
+            if (MARKDOWNS[level] == markdown) {
+                return buyBackPrices[level];
+            }
+        }
+        return markDown(markdown);
+    }
+
+    /**
+     * Returns the text listing the items in stock and their prices.<p>
+     * The listings of the standard and samurai shops are built once and shared.
+     *
+     * @param stock The items in stock, as a bitmask with one bit per Item.
+     * @return One line per item in stock.
+     */
+    public String inventory(long stock) {
+        if (stock == standardStock) {
+            return standardInventory;
+        } else if (stock == (standardStock | Item.SWORD.bit())) {
+            return samuraiInventory;
+        }
+        return buildInventory(stock);
+    }
+
+    private int[] markDown(double markdown) {
+        int[] prices = new int[buyPrices.length];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = (int) (buyPrices[i] * markdown);
+        }
+        return prices;
+    }
+
+    private String buildInventory(long stock) {
+        StringBuilder inventory = new StringBuilder();
+        for (Item item : Item.values()) {
+            if ((stock & item.bit()) != 0) {
+                inventory.append(listings[item.ordinal()]);
+            }
+        }
+        return inventory.toString();
+    }
+}
@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The JournalReader streams the records of an EventJournal back, oldest segment first.<p>
+ * Each record is handed to a Visitor as plain values, so replaying or aggregating millions of
+ * events creates no objects per event. Empty slots at the end of a segment are skipped, and a record
+ * whose event code no GameEvent has, as a corrupt or foreign file would hold, is reported apart.
+ */
+
+public class JournalReader {
+
+    /**
+     * Receives the events read back from a journal.
+     */
+    public interface Visitor {
+        void event(long time, long sessionId, GameEvent event, int subject, int amount, int balance);
+
+        /**
+         * Receives a record whose event code is unknown, in place of event(); it is ignored unless overridden.
+         */
+        default void unknown(long time, long sessionId, int code) {
+        }
+    }
+
+    /**
+     * Reads every record in a journal directory.
+     *
+     * @param directory The journal directory.
+     * @param visitor Receives each record in order.
+     * @return The number of known events read.
+     */
+    public static long read(Path directory, Visitor visitor) throws IOException {
+        long count = 0;
+        for (Path file : EventJournal.segmentFiles(directory)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                int records = (int) (channel.size() / EventJournal.RECORD_SIZE);
+                for (int i = 0; i < records; i++) {
+                    int offset = i * EventJournal.RECORD_SIZE;
+                    int header = buffer.getInt(offset + EventJournal.HEADER);
+                    int code = header & 0xFF;
+                    if (code == 0) {
+                        continue;
+                    }
+                    GameEvent event = GameEvent.of(code);
+                    if (event == null) {
+                        visitor.unknown(buffer.getLong(offset + EventJournal.TIME),
+                                buffer.getLong(offset + EventJournal.SESSION), code);
+                        continue;
+                    }
+                    visitor.event(buffer.getLong(offset + EventJournal.TIME),
+                            buffer.getLong(offset + EventJournal.SESSION),
+                            event,
+                            (byte) (header >> 8),
+                            buffer.getInt(offset + EventJournal.AMOUNT),
+                            buffer.getInt(offset + EventJournal.BALANCE));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Prints how many of each event a journal holds and the gold that moved with them.<p>
+     * Usage: java JournalReader directory
+     */
+    public static void main(String[] args) throws IOException {
+        int kinds = GameEvent.values().length;
+        long[] counts = new long[kinds];
+        long[] gold = new long[kinds];
+        long[] unknown = new long[1];
+        long start = System.nanoTime();
+        long total = read(Paths.get(args[0]), new Visitor() {
+            public void event(long time, long sessionId, GameEvent event, int subject, int amount, int balance) {
+                counts[event.ordinal()]++;
+                gold[event.ordinal()] += amount;
+            }
+
+            public void unknown(long time, long sessionId, int code) {
+                unknown[0]++;
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (GameEvent event : GameEvent.values()) {
+            System.out.printf("%-15s %12d events %14d gold%n", event, counts[event.ordinal()], gold[event.ordinal()]);
+        }
+        if (unknown[0] > 0) {
+            System.out.printf("%d records with an unknown event code skipped%n", unknown[0]);
+        }
+        System.out.printf("%d events read in %.3f s, %.0f events/sec%n", total, seconds, total / seconds);
+    }
+}
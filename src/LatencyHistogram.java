@@ -0,0 +1,102 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A LatencyHistogram counts how long an action takes in fixed power-of-two buckets.<p>
+ * Bucket 0 holds everything under 64 ns, bucket i holds [2^(i+5), 2^(i+6)) ns, and the last
+ * bucket holds everything slower. Finding the bucket is one leading-zero count, and every
+ * bucket is a striped LongAdder, so recording is a few nanoseconds and game threads never
+ * contend on the same cache line. Quantiles are reported as the upper edge of their bucket,
+ * so they are accurate to within a factor of two.
+ */
+
+public class LatencyHistogram implements LatencyHistogramMBean {
+    // constants
+    public static final int BUCKETS = 32;
+    private static final int SMALLEST_SHIFT = 6;
+
+    // instance variables
+    private final LongAdder[] buckets;
+    private final LongAdder total;
+    private final LongAccumulator max;
+
+    public LatencyHistogram() {
+        buckets = new LongAdder[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+        total = new LongAdder();
+        max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * @param nanos How long one action took.
+     */
+    public void record(long nanos) {
+        int bucket = 64 - Long.numberOfLeadingZeros(nanos >>> SMALLEST_SHIFT);
+        buckets[Math.min(bucket, BUCKETS - 1)].increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public double getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) total.sum() / count;
+    }
+
+    public long getP50Nanos() {
+        return quantile(0.5);
+    }
+
+    public long getP90Nanos() {
+        return quantile(0.9);
+    }
+
+    public long getP99Nanos() {
+        return quantile(0.99);
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public long[] getBuckets() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * @param q The quantile wanted, between 0 and 1.
+     * @return The upper edge of the bucket the quantile falls in, or the largest time seen for the last bucket.
+     */
+    public long quantile(double q) {
+        long[] counts = getBuckets();
+        long count = 0;
+        for (long c : counts) {
+            count += c;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(1L << (i + SMALLEST_SHIFT), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * What JMX shows of a LatencyHistogram. All times are in nanoseconds.
+ */
+
+public interface LatencyHistogramMBean {
+    long getCount();
+
+    double getMeanNanos();
+
+    long getP50Nanos();
+
+    long getP90Nanos();
+
+    long getP99Nanos();
+
+    long getMaxNanos();
+
+    /**
+     * @return How many timings fell into each bucket; bucket i holds times below 2^(i+6) ns.
+     */
+    long[] getBuckets();
+}
@@ -0,0 +1,687 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * The Leaderboard keeps every finished game on disk and answers who did best.<p>
+ * Games go into records.dat as fixed-size 64 byte records:
+ * <pre>
+ *   0  long  time (epoch milliseconds)
+ *   8  int   turns
+ *  12  int   gold
+ *  16  byte  mode letter: e, n, h, s or t
+ *  17  byte  GameResult ordinal
+ *  18  byte  treasures, one bit per Treasure
+ *  19  byte  name length
+ *  20  40 bytes of UTF-8 name, cut short if longer
+ *  60  int   CRC32 of bytes 0 to 59
+ * </pre>
+ * Two sorted indexes point into the records. The rank index is sorted by mode and then by standing
+ * (more treasures, then more gold, then fewer turns), so the top N of a mode are the first N entries
+ * after a binary search. The name index is sorted by a hash of the hunter's name, so a player's games
+ * are found the same way. Neither query reads records that are not part of the answer.<p>
+ * Games are added in batches. A full batch is handed to a background writer thread, so the game that
+ * fills it never waits on the disk, and batches are written in the order they filled. The writer
+ * appends a batch to records.dat and forces it to disk, then indexes it
+ * into a new pair of sorted run files, each written to a temporary file, forced and renamed into
+ * place. Runs are named after the records they cover, so after a crash the tail of records.dat
+ * that no complete run covers is checked against its CRCs and indexed again when the board is
+ * opened. Whenever the newest run has grown to at least half the size of the one before it, the two
+ * are merged, which keeps the number of runs a query has to look at logarithmic in the number of games.
+ * The writer publishes the new list of runs only once the merging is done, and queries read whichever
+ * list was last published, so they never wait for a write or a merge; the files of runs merged away
+ * stay readable through their mappings until nothing uses them.
+ */
+
+public class Leaderboard implements AutoCloseable {
+    // constants
+    public static final int RECORD_SIZE = 64;
+    private static final int ENTRY_SIZE = 16;
+    private static final int MERGE_BUFFER = ENTRY_SIZE * 4096;
+    private static final int MAX_NAME = 40;
+    private static final int CRC = 60;
+    private static final String RECORDS = "records.dat";
+    private static final String RANK = "rank-";
+    private static final String NAME = "name-";
+    private static final String SUFFIX = ".idx";
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+    private static final String MODES = "enhst";
+
+    // instance variables
+    private final Path directory;
+    private final int batchSize;
+    private final FileChannel records;
+    private final ExecutorService writer;
+    private final Object pendingLock;
+    private List<Entry> pending;
+    private volatile List<Run> runs; // replaced whole by the writer, never changed in place
+    private volatile long recordCount;
+    private volatile UncheckedIOException failure;
+
+    /**
+     * Opens a leaderboard, creating it if needed and repairing it if the last run was cut short.
+     *
+     * @param directory Where the records and indexes are kept.
+     * @param batchSize How many games are collected before they are written out together.
+     */
+    public Leaderboard(Path directory, int batchSize) {
+        this.directory = directory;
+        this.batchSize = batchSize;
+        runs = List.of();
+        pendingLock = new Object();
+        pending = new ArrayList<>();
+        try {
+            Files.createDirectories(directory);
+            records = FileChannel.open(directory.resolve(RECORDS),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "leaderboard-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds a finished game. It is written out with the rest of its batch.
+     *
+     * @param game The finished game.
+     */
+    public void add(TreasureHunter game) {
+        Hunter hunter = game.getHunter();
+        add(new Entry(System.currentTimeMillis(), hunter.getHunterName(), game.getMode(), game.getResult(),
+                game.getCount(), hunter.getGold(), hunter.getTreasures()));
+    }
+
+    public void add(Entry entry) {
+        synchronized (pendingLock) {
+            pending.add(entry);
+            if (pending.size() >= batchSize) {
+                writeOut();
+            }
+        }
+    }
+
+    /**
+     * Writes the games added so far to disk and indexes them, and waits until every batch is written.
+     *
+     * @throws UncheckedIOException If writing this batch, or one handed to the writer before it, failed.
+     */
+    public void flush() {
+        Future<?> written;
+        synchronized (pendingLock) {
+            written = writeOut();
+        }
+        try {
+            written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("writing the leaderboard failed", e.getCause());
+        }
+        UncheckedIOException failed = failure;
+        if (failed != null) {
+            failure = null;
+            throw failed;
+        }
+    }
+
+    /**
+     * @return How many games have been written to disk.
+     */
+    public long size() {
+        return recordCount;
+    }
+
+    /**
+     * @param mode A mode letter; anything else is played, and ranked, as normal mode.
+     * @param n How many games are wanted.
+     * @return The best n games written to disk in that mode, best first.
+     */
+    public List<Entry> top(String mode, int n) {
+        List<Run> runs = this.runs;
+        long lowest = (long) modeByte(mode) << 56;
+        long highest = lowest + (1L << 56);
+        int[] cursors = new int[runs.size()];
+        for (int i = 0; i < runs.size(); i++) {
+            cursors[i] = runs.get(i).rank.lowerBound(lowest);
+        }
+        List<Entry> best = new ArrayList<>();
+        while (best.size() < n) {
+            int from = -1;
+            for (int i = 0; i < runs.size(); i++) {
+                SortedFile rank = runs.get(i).rank;
+                if (cursors[i] < rank.size() && rank.key(cursors[i]) < highest
+                        && (from < 0 || rank.key(cursors[i]) < runs.get(from).rank.key(cursors[from]))) {
+                    from = i;
+                }
+            }
+            if (from < 0) {
+                break;
+            }
+            best.add(read(runs.get(from).rank.value(cursors[from]++)));
+        }
+        return best;
+    }
+
+    /**
+     * @param name A hunter's name.
+     * @return Every game of that hunter written to disk, best first within each mode.
+     */
+    public List<Entry> player(String name) {
+        String stored = Entry.storedName(name);
+        long hash = nameHash(stored);
+        List<Entry> games = new ArrayList<>();
+        for (Run run : this.runs) {
+            for (int i = run.name.lowerBound(hash); i < run.name.size() && run.name.key(i) == hash; i++) {
+                Entry entry = read(run.name.value(i));
+                if (entry.getName().equals(stored)) {
+                    games.add(entry);
+                }
+            }
+        }
+        games.sort(Comparator.comparingLong(Entry::rankKey));
+        return games;
+    }
+
+    /**
+     * Writes out the last batch and stops the writer.
+     */
+    public void close() {
+        flush();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            records.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Drops a torn or corrupt tail of records.dat, removes index files a crash left behind,
+     * and indexes any records that no run covers.
+     */
+    private void recover() throws IOException {
+        List<Run> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, RANK + "*" + SUFFIX)) {
+            for (Path rankFile : stream) {
+                String range = rankFile.getFileName().toString().substring(RANK.length());
+                Path nameFile = directory.resolve(NAME + range);
+                if (Files.exists(nameFile)) {
+                    found.add(openRun(range));
+                } else {
+                    Files.delete(rankFile);
+                }
+            }
+        }
+        found.sort(Comparator.comparingLong((Run run) -> run.first).thenComparingLong(run -> -run.end));
+        long indexed = 0;
+        List<Run> kept = new ArrayList<>();
+        for (Run run : found) {
+            if (run.end <= indexed) {
+                // merged into a run already kept, before a crash stopped the old files being deleted
+                deleteRun(run);
+            } else {
+                kept.add(run);
+                indexed = run.end;
+            }
+        }
+        runs = List.copyOf(kept);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.tmp")) {
+            for (Path temporary : stream) {
+                Files.delete(temporary);
+            }
+        }
+        removeOrphanNameFiles();
+
+        long count = Math.max(indexed, records.size() / RECORD_SIZE);
+        List<Entry> unindexed = new ArrayList<>();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long valid = indexed;
+        for (long i = indexed; i < count; i++) {
+            record.clear();
+            if (records.read(record, i * RECORD_SIZE) < RECORD_SIZE || !Entry.checksumMatches(record)) {
+                break;
+            }
+            unindexed.add(Entry.readFrom(record));
+            valid = i + 1;
+        }
+        records.truncate(valid * RECORD_SIZE);
+        recordCount = valid;
+        if (!unindexed.isEmpty()) {
+            addRun(index(indexed, unindexed));
+        }
+    }
+
+    private void removeOrphanNameFiles() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, NAME + "*" + SUFFIX)) {
+            for (Path nameFile : stream) {
+                String range = nameFile.getFileName().toString().substring(NAME.length());
+                if (!Files.exists(directory.resolve(RANK + range))) {
+                    Files.delete(nameFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands the pending games to the writer; the caller holds pendingLock, so batches keep their order.
+     *
+     * @return Done once they are written.
+     */
+    private Future<?> writeOut() {
+        List<Entry> batch = pending;
+        pending = new ArrayList<>();
+        return writer.submit(() -> write(batch));
+    }
+
+    /**
+     * Appends a batch to records.dat and indexes it, on the writer thread. A failure is kept for flush() to throw.
+     */
+    private void write(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            long first = recordCount;
+            ByteBuffer buffer = ByteBuffer.allocate(batch.size() * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (Entry entry : batch) {
+                entry.writeTo(buffer);
+            }
+            buffer.flip();
+            long position = first * RECORD_SIZE;
+            while (buffer.hasRemaining()) {
+                position += records.write(buffer, position);
+            }
+            records.force(false);
+            addRun(index(first, batch));
+            recordCount = first + batch.size();
+        } catch (IOException e) {
+            failure = new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sorts a batch into a new run covering the records from first on.
+     */
+    private Run index(long first, List<Entry> batch) throws IOException {
+        int n = batch.size();
+        long[] rankKeys = new long[n];
+        long[] nameKeys = new long[n];
+        long[] numbers = new long[n];
+        for (int i = 0; i < n; i++) {
+            rankKeys[i] = batch.get(i).rankKey();
+            nameKeys[i] = nameHash(batch.get(i).getName());
+            numbers[i] = first + i;
+        }
+        String range = runName(first, first + n);
+        writeSorted(NAME + range, nameKeys, numbers);
+        writeSorted(RANK + range, rankKeys, numbers);
+        return openRun(range);
+    }
+
+    /**
+     * Adds a new run, then merges it with the runs before it while they are not much bigger, and
+     * publishes the result for queries.
+     */
+    private void addRun(Run run) throws IOException {
+        List<Run> runs = new ArrayList<>(this.runs);
+        runs.add(run);
+        while (runs.size() > 1) {
+            Run newest = runs.get(runs.size() - 1);
+            Run previous = runs.get(runs.size() - 2);
+            if (previous.rank.size() > 2L * newest.rank.size()) {
+                break;
+            }
+            String range = runName(previous.first, newest.end);
+            merge(NAME + range, previous.name, newest.name);
+            merge(RANK + range, previous.rank, newest.rank);
+            runs.remove(runs.size() - 1);
+            runs.set(runs.size() - 1, openRun(range));
+            deleteRun(previous);
+            deleteRun(newest);
+        }
+        this.runs = List.copyOf(runs);
+    }
+
+    private void writeSorted(String file, long[] keys, long[] values) throws IOException {
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> keys[a] != keys[b] ? Long.compare(keys[a], keys[b]) : Long.compare(values[a], values[b]));
+        ByteBuffer buffer = ByteBuffer.allocate(keys.length * ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i : order) {
+            buffer.putLong(keys[i]).putLong(values[i]);
+        }
+        buffer.flip();
+        writeAtomically(file, buffer);
+    }
+
+    /**
+     * Merges two runs through a small buffer, so merging the biggest runs needs no more memory than the smallest.
+     */
+    private void merge(String file, SortedFile a, SortedFile b) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(MERGE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = createTemporary(file)) {
+            int i = 0;
+            int j = 0;
+            while (i < a.size() || j < b.size()) {
+                boolean fromA = j == b.size() || (i < a.size() && (a.key(i) < b.key(j) || (a.key(i) == b.key(j) && a.value(i) < b.value(j))));
+                if (fromA) {
+                    buffer.putLong(a.key(i)).putLong(a.value(i));
+                    i++;
+                } else {
+                    buffer.putLong(b.key(j)).putLong(b.value(j));
+                    j++;
+                }
+                if (!buffer.hasRemaining()) {
+                    writeFully(channel, buffer);
+                }
+            }
+            writeFully(channel, buffer);
+            channel.force(true);
+        }
+        rename(file);
+    }
+
+    /**
+     * Writes a file under a temporary name, forces it to disk and only then gives it its real name,
+     * so a run file either exists complete or not at all.
+     */
+    private void writeAtomically(String file, ByteBuffer contents) throws IOException {
+        try (FileChannel channel = createTemporary(file)) {
+            while (contents.hasRemaining()) {
+                channel.write(contents);
+            }
+            channel.force(true);
+        }
+        rename(file);
+    }
+
+    private FileChannel createTemporary(String file) throws IOException {
+        return FileChannel.open(directory.resolve(file + ".tmp"), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private void rename(String file) throws IOException {
+        Files.move(directory.resolve(file + ".tmp"), directory.resolve(file), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private Run openRun(String range) throws IOException {
+        int dash = range.indexOf('-');
+        long first = Long.parseLong(range.substring(0, dash), 16);
+        long end = Long.parseLong(range.substring(dash + 1, range.length() - SUFFIX.length()), 16);
+        return new Run(first, end, new SortedFile(directory.resolve(RANK + range)), new SortedFile(directory.resolve(NAME + range)));
+    }
+
+    private void deleteRun(Run run) throws IOException {
+        String range = runName(run.first, run.end);
+        Files.deleteIfExists(directory.resolve(RANK + range));
+        Files.deleteIfExists(directory.resolve(NAME + range));
+    }
+
+    private static String runName(long first, long end) {
+        return String.format("%016x-%016x", first, end) + SUFFIX;
+    }
+
+    private Entry read(long number) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            long position = number * RECORD_SIZE;
+            while (record.hasRemaining()) {
+                position += records.read(record, position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        record.flip();
+        return Entry.readFrom(record);
+    }
+
+    /**
+     * @return The mode's letter, or n for a mode the game does not know and so plays as normal.
+     */
+    private static byte modeByte(String mode) {
+        return (byte) (mode.length() == 1 && MODES.indexOf(mode.charAt(0)) >= 0 ? mode.charAt(0) : 'n');
+    }
+
+    /**
+     * FNV-1a over the name's UTF-8 bytes; equal hashes are checked against the stored name.
+     */
+    private static long nameHash(String name) {
+        long hash = FNV_OFFSET;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * A sorted run of the rank and name indexes, covering the records from first up to end.
+     */
+    private static class Run {
+        final long first;
+        final long end;
+        final SortedFile rank;
+        final SortedFile name;
+
+        Run(long first, long end, SortedFile rank, SortedFile name) {
+            this.first = first;
+            this.end = end;
+            this.rank = rank;
+            this.name = name;
+        }
+    }
+
+    /**
+     * A memory-mapped index file of 16 byte (key, record number) entries in ascending order.
+     */
+    private static class SortedFile {
+        final MappedByteBuffer buffer;
+        final int size;
+
+        SortedFile(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                size = (int) (channel.size() / ENTRY_SIZE);
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        long key(int i) {
+            return buffer.getLong(i * ENTRY_SIZE);
+        }
+
+        long value(int i) {
+            return buffer.getLong(i * ENTRY_SIZE + 8);
+        }
+
+        /**
+         * @return The first entry whose key is not below the given one.
+         */
+        int lowerBound(long key) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (key(middle) < key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * One finished game on the leaderboard.
+     */
+    public static class Entry {
+        private final long time;
+        private final String name;
+        private final String mode;
+        private final GameResult result;
+        private final int turns;
+        private final int gold;
+        private final int treasures;
+
+        public Entry(long time, String name, String mode, GameResult result, int turns, int gold, int treasures) {
+            this.time = time;
+            this.name = storedName(name);
+            this.mode = mode;
+            this.result = result;
+            this.turns = turns;
+            this.gold = gold;
+            this.treasures = treasures;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getMode() {
+            return mode;
+        }
+
+        public GameResult getResult() {
+            return result;
+        }
+
+        public int getTurns() {
+            return turns;
+        }
+
+        public int getGold() {
+            return gold;
+        }
+
+        public int getTreasures() {
+            return treasures;
+        }
+
+        /**
+         * Orders games by mode, then most treasures, then most gold, then fewest turns,
+         * so that within a mode a smaller key is a better game.
+         */
+        long rankKey() {
+            long missing = Treasure.values().length - Integer.bitCount(treasures);
+            long lessGold = (1L << 27) - 1 - Math.max(0, Math.min((1L << 27) - 1, gold + (1L << 26)));
+            long cappedTurns = Math.min(turns, (1L << 27) - 1);
+            return (long) modeByte(mode) << 56 | missing << 54 | lessGold << 27 | cappedTurns;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            int start = buffer.position();
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            buffer.putLong(time);
+            buffer.putInt(turns);
+            buffer.putInt(gold);
+            buffer.put(modeByte(mode));
+            buffer.put((byte) result.ordinal());
+            buffer.put((byte) treasures);
+            buffer.put((byte) bytes.length);
+            buffer.put(bytes);
+            buffer.position(start + CRC);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), start, CRC);
+            buffer.putInt((int) crc.getValue());
+        }
+
+        static boolean checksumMatches(ByteBuffer record) {
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 0, CRC);
+            return record.getInt(CRC) == (int) crc.getValue();
+        }
+
+        static Entry readFrom(ByteBuffer record) {
+            int length = record.get(19);
+            String name = new String(record.array(), 20, length, StandardCharsets.UTF_8);
+            int mode = record.get(16) & 0xFF;
+            return new Entry(record.getLong(0), name, mode == 0 ? "" : String.valueOf((char) mode),
+                    GameResult.values()[record.get(17)], record.getInt(8), record.getInt(12), record.get(18) & 0xFF);
+        }
+
+        /**
+         * @return The name as it is stored: no longer than fits in a record.
+         */
+        static String storedName(String name) {
+            while (name.getBytes(StandardCharsets.UTF_8).length > MAX_NAME) {
+                name = name.substring(0, name.length() - 1);
+            }
+            return name;
+        }
+
+        public String toString() {
+            return String.format("%-20s %s %-5s %5d turns %6d gold %d treasures", name, mode, result,
+                    turns, gold, Integer.bitCount(treasures));
+        }
+    }
+
+    /**
+     * Usage: java Leaderboard directory top mode [n]<p>
+     * or: java Leaderboard directory player name
+     */
+    public static void main(String[] args) {
+        try (Leaderboard board = new Leaderboard(Paths.get(args[0]), 1)) {
+            long start = System.nanoTime();
+            List<Entry> entries;
+            if (args[1].equals("player")) {
+                entries = board.player(args[2].toLowerCase());
+            } else {
+                entries = board.top(args[2], args.length > 3 ? Integer.parseInt(args[3]) : 10);
+            }
+            double millis = (System.nanoTime() - start) / 1e6;
+            for (Entry entry : entries) {
+                System.out.println(entry);
+            }
+            System.out.printf("%d of %d games in %.3f ms%n", entries.size(), board.size(), millis);
+        }
+    }
+}
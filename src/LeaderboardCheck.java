@@ -0,0 +1,184 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Checks the Leaderboard's on-disk format against a full scan of its records.<p>
+ * Random games, some in modes the game does not know, are added in batches so that runs are
+ * written and merged. The top games of every mode and every player's games must then be the
+ * same as sorting everything in records.dat, and unknown modes must rank as normal mode. Then a
+ * batch that was written but never indexed is appended, followed by a torn record, as a crash would
+ * leave them: reopening must index the batch, drop the torn record and agree with a full scan again.
+ * Exits with status 1 if any check fails.
+ */
+
+public class LeaderboardCheck {
+    // constants
+    private static final String[] MODES = {"e", "n", "h", "s", "t", "x", "", "hard", "\u007F", "\u00FF"};
+    private static final String[] KNOWN = {"e", "n", "h", "s", "t"};
+    private static final int NAMES = 50;
+    private static final int BATCH = 37;
+    private static final int TOP = 25;
+
+    // static variables
+    private static int checked;
+    private static int failures;
+
+    /**
+     * Usage: java LeaderboardCheck [games] [seed] [directory]<p>
+     * Without a directory a temporary one is used and deleted afterwards.
+     */
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        Path directory = args.length > 2 ? Paths.get(args[2]) : Files.createTempDirectory("leaderboard");
+        SplittableRandom rng = new SplittableRandom(seed);
+        try {
+            try (Leaderboard board = new Leaderboard(directory, BATCH)) {
+                for (int i = 0; i < games; i++) {
+                    board.add(randomEntry(i, rng));
+                }
+            }
+            long written;
+            try (Leaderboard board = new Leaderboard(directory, BATCH)) {
+                compare("after adding", board, directory);
+                written = board.size();
+            }
+            int recovered = crash(directory, written, rng);
+            checkRecovery(directory, written + recovered);
+        } finally {
+            if (args.length <= 2) {
+                delete(directory);
+            }
+        }
+        System.out.println(checked + " queries checked, " + failures + " failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Leaderboard.Entry randomEntry(long time, SplittableRandom rng) {
+        return new Leaderboard.Entry(time, "hunter" + rng.nextInt(NAMES), MODES[rng.nextInt(MODES.length)],
+                GameResult.values()[rng.nextInt(GameResult.values().length)], rng.nextInt(500),
+                rng.nextInt(-50, 1000), rng.nextInt(8));
+    }
+
+    /**
+     * Leaves records.dat as a crash in the middle of a flush would: a batch forced to disk but never
+     * indexed, then half a record.
+     *
+     * @return How many whole records were appended.
+     */
+    private static int crash(Path directory, long written, SplittableRandom rng) throws IOException {
+        int batch = BATCH - 1;
+        ByteBuffer records = ByteBuffer.allocate((batch + 1) * Leaderboard.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < batch + 1; i++) {
+            randomEntry(written + i, rng).writeTo(records);
+        }
+        records.flip();
+        records.limit(batch * Leaderboard.RECORD_SIZE + Leaderboard.RECORD_SIZE / 2);
+        try (FileChannel file = FileChannel.open(directory.resolve("records.dat"), StandardOpenOption.WRITE)) {
+            long position = written * Leaderboard.RECORD_SIZE;
+            while (records.hasRemaining()) {
+                position += file.write(records, position);
+            }
+        }
+        return batch;
+    }
+
+    private static void checkRecovery(Path directory, long expected) throws IOException {
+        try (Leaderboard board = new Leaderboard(directory, BATCH)) {
+            checked++;
+            long length = Files.size(directory.resolve("records.dat"));
+            if (board.size() != expected || length != expected * Leaderboard.RECORD_SIZE) {
+                fail("recovery", board.size() + " games and " + length + " bytes, expected " + expected + " games");
+            }
+            compare("after recovery", board, directory);
+        }
+    }
+
+    private static void compare(String when, Leaderboard board, Path directory) throws IOException {
+        List<Leaderboard.Entry> all = scan(directory);
+        for (String mode : MODES) {
+            String letter = List.of(KNOWN).contains(mode) ? mode : "n";
+            List<Leaderboard.Entry> expected = new ArrayList<>();
+            for (Leaderboard.Entry entry : all) {
+                if (entry.getMode().equals(letter)) {
+                    expected.add(entry);
+                }
+            }
+            expected.sort(Comparator.comparingLong(Leaderboard.Entry::rankKey));
+            same(when + ", top of mode " + (int) (mode.isEmpty() ? 0 : mode.charAt(0)),
+                    expected.subList(0, Math.min(TOP, expected.size())), board.top(mode, TOP));
+        }
+        for (int i = 0; i < NAMES; i++) {
+            String name = "hunter" + i;
+            List<Leaderboard.Entry> expected = new ArrayList<>();
+            for (Leaderboard.Entry entry : all) {
+                if (entry.getName().equals(name)) {
+                    expected.add(entry);
+                }
+            }
+            expected.sort(Comparator.comparingLong(Leaderboard.Entry::rankKey));
+            same(when + ", games of " + name, expected, board.player(name));
+        }
+    }
+
+    /**
+     * @return Every record in records.dat, in the order written.
+     */
+    private static List<Leaderboard.Entry> scan(Path directory) throws IOException {
+        ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(directory.resolve("records.dat")))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        List<Leaderboard.Entry> all = new ArrayList<>();
+        for (int at = 0; at + Leaderboard.RECORD_SIZE <= records.capacity(); at += Leaderboard.RECORD_SIZE) {
+            ByteBuffer record = ByteBuffer.wrap(Arrays.copyOfRange(records.array(), at, at + Leaderboard.RECORD_SIZE))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            all.add(Leaderboard.Entry.readFrom(record));
+        }
+        return all;
+    }
+
+    private static void same(String what, List<Leaderboard.Entry> expected, List<Leaderboard.Entry> actual) {
+        checked++;
+        if (expected.isEmpty() || !describe(expected).equals(describe(actual))) {
+            fail(what, "expected " + expected.size() + " games, got " + actual.size()
+                    + (expected.isEmpty() ? "" : ", first " + describe(expected).get(0)));
+        }
+    }
+
+    private static List<String> describe(List<Leaderboard.Entry> entries) {
+        List<String> described = new ArrayList<>();
+        for (Leaderboard.Entry entry : entries) {
+            described.add(entry.getTime() + " " + entry);
+        }
+        return described;
+    }
+
+    private static void fail(String what, String why) {
+        failures++;
+        if (failures <= 10) {
+            System.out.println(what + ": " + why);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * A LogHistogram keeps the distribution of a stream of whole numbers in a fixed amount of memory.<p>
+ * Numbers below 32 each get a bucket of their own, so small counts such as gold dug or items broken
+ * are exact. Above that every power of two is split into 16 buckets, so any quantile is within
+ * about 6% of the true value however many billions of numbers are recorded. Negative numbers are
+ * kept the same way in buckets of their own. The count, sum, smallest and largest are exact.<p>
+ * A histogram is not thread safe: each thread records into its own and they are added together
+ * at the end, which is cheaper than sharing one.
+ */
+
+public class LogHistogram {
+    // constants
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    // instance variables
+    private long[] positive;
+    private long[] negative;
+    private long count;
+    private long sum;
+    private long min;
+    private long max;
+
+    public LogHistogram() {
+        positive = new long[BUCKETS];
+        negative = new long[BUCKETS];
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+
+    public void record(long value) {
+        if (value >= 0) {
+            positive[bucket(value)]++;
+        } else {
+            negative[bucket(-value)]++;
+        }
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds everything recorded by another histogram to this one.
+     *
+     * @param other The histogram to add.
+     */
+    public void add(LogHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            positive[i] += other.positive[i];
+            negative[i] += other.negative[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param q The quantile wanted, between 0 and 1.
+     * @return A value that at least that fraction of the numbers recorded are no greater than,
+     *         taken from the top of its bucket and never outside the smallest and largest recorded.
+     */
+    public long quantile(double q) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+            seen += negative[i];
+            if (seen >= rank) {
+                return clamp(-lowest(i));
+            }
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += positive[i];
+            if (seen >= rank) {
+                return clamp(highest(i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return The 50th, 90th and 99th percentiles, with the count and the range.
+     */
+    public String toString() {
+        return String.format("p50 %d, p90 %d, p99 %d (%d samples, %d to %d, mean %.2f)",
+                quantile(0.5), quantile(0.9), quantile(0.99), count, getMin(), getMax(), getMean());
+    }
+
+    private long clamp(long value) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * @param magnitude A value that is not negative.
+     * @return Its bucket, found with one leading-zero count.
+     */
+    private static int bucket(long magnitude) {
+        if (magnitude < 2 * SUB_BUCKETS) {
+            return (int) magnitude;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(magnitude) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (magnitude >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long lowest(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+
+    private static long highest(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        return lowest(bucket) + (1L << (bucket / SUB_BUCKETS - 1)) - 1;
+    }
+}
@@ -0,0 +1,155 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics counts what happens in every game running in this JVM and times each action.<p>
+ * Counters are striped LongAdders, so many game threads can count at once without contending,
+ * and each Action has a fixed-bucket LatencyHistogram. Recording a counter costs a few
+ * nanoseconds. Timing costs two System.nanoTime() calls, which is far more, so only one menu
+ * move in SAMPLE_EVERY is timed; the histograms show the shape of the latencies and their
+ * counts are a sample, while the counters are exact. Trades in the shop are rare and always timed.<p>
+ * Once register() is called, the counters show up over JMX as attributes of
+ * {@code TreasureHunter:type=Counters} and each histogram as {@code TreasureHunter:type=Latency,name=<action>}.
+ */
+
+public class Metrics implements DynamicMBean {
+
+    /**
+     * Everything that is counted.
+     */
+    public enum Counter {
+        MOVES, HUNTS, TREASURES_FOUND, DIGS, GOLD_DUG, NO_SHOVEL, BRAWLS_WON, BRAWLS_LOST, NO_TROUBLE,
+        ITEMS_BOUGHT, PURCHASES_REFUSED, ITEMS_SOLD, SALES_REFUSED, TOWNS_LEFT, TOWNS_BLOCKED, ITEMS_BROKEN,
+        GAMES_WON, GAMES_BROKE, GAMES_QUIT
+    }
+
+    /**
+     * Everything that is timed.
+     */
+    public enum Action {
+        HUNT, DIG, BRAWL, TRAVEL, BUY, SELL, OTHER
+    }
+
+    // constants
+    public static final int SAMPLE_EVERY = 16;
+
+    /** The metrics of every game in this JVM. */
+    public static final Metrics GLOBAL = new Metrics();
+
+    // instance variables
+    private final LongAdder[] counters;
+    private final LatencyHistogram[] latencies;
+    private MBeanInfo info;
+    private boolean registered;
+
+    private Metrics() {
+        counters = new LongAdder[Counter.values().length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        latencies = new LatencyHistogram[Action.values().length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    public void count(Counter counter) {
+        counters[counter.ordinal()].increment();
+    }
+
+    public void add(Counter counter, long amount) {
+        counters[counter.ordinal()].add(amount);
+    }
+
+    public long get(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    /**
+     * Records how long an action took.
+     *
+     * @param action The action.
+     * @param startNanos The System.nanoTime() taken when the action started.
+     */
+    public void time(Action action, long startNanos) {
+        latencies[action.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public LatencyHistogram latency(Action action) {
+        return latencies[action.ordinal()];
+    }
+
+    /**
+     * Publishes the counters and histograms over JMX. Calling it again does nothing.
+     */
+    public synchronized void register() {
+        if (registered) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, new ObjectName("TreasureHunter:type=Counters"));
+            for (Action action : Action.values()) {
+                ObjectName name = new ObjectName("TreasureHunter:type=Latency,name=" + action.name().toLowerCase());
+                server.registerMBean(latency(action), name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("could not register the game metrics", e);
+        }
+        registered = true;
+    }
+
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        for (Counter counter : Counter.values()) {
+            if (counter.name().equals(attribute)) {
+                return get(counter);
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("counters are read-only: " + attribute.getName());
+    }
+
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // left out, as the DynamicMBean contract asks
+            }
+        }
+        return list;
+    }
+
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    public synchronized MBeanInfo getMBeanInfo() {
+        if (info == null) {
+            Counter[] all = Counter.values();
+            MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[all.length];
+            for (int i = 0; i < all.length; i++) {
+                attributes[i] = new MBeanAttributeInfo(all[i].name(), "long", "Total " + all[i].name().toLowerCase().replace('_', ' '), true, false, false);
+            }
+            info = new MBeanInfo(getClass().getName(), "Treasure Hunter counters", attributes, null, null, null);
+        }
+        return info;
+    }
+}
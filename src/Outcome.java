@@ -0,0 +1,140 @@
+/**
+ * An Outcome says what happened when the hunter did something in a Town, without any text.<p>
+ * It is a kind, plus the gold, item or treasure involved when there is one. Outcomes never change,
+ * and every outcome the game can produce is made once up front and shared, so an action in town
+ * allocates nothing. Turning an outcome into words is up to OutcomeFormatter, and only happens
+ * when somebody is watching.
+ */
+
+public class Outcome {
+
+    /**
+     * Everything that can happen in town.
+     */
+    public enum Kind {
+        /** Nothing worth telling, such as after a visit to the shop. */
+        NOTHING,
+        ARRIVED_SLEEPY,
+        ARRIVED_TOUGH,
+        NO_TROUBLE,
+        /** The gold is what was won. */
+        BRAWL_WON,
+        /** The brawler saw the hunter's sword and handed the gold over. */
+        BRAWL_WON_WITH_SWORD,
+        /** The gold is what was lost. */
+        BRAWL_LOST,
+        /** The item is the one used to cross the terrain. */
+        TOWN_LEFT,
+        /** Left town, but the item used wore out. */
+        TOWN_LEFT_ITEM_BROKE,
+        /** Left town, but the horse or rope used was lost. */
+        TOWN_LEFT_ITEM_LOST,
+        /** The item is the one the hunter is missing. */
+        CANNOT_LEAVE,
+        TREASURE_FOUND,
+        TREASURE_ALREADY_FOUND,
+        /** Somebody else in the shared town dug the treasure up first. */
+        TREASURE_TAKEN,
+        DUST,
+        /** The gold is what was dug up. */
+        GOLD_DUG,
+        DIRT,
+        NO_SHOVEL
+    }
+
+    // constants
+    private static final int MAX_CACHED_GOLD = 64;
+    private static final Kind[] KINDS = Kind.values();
+    private static final Outcome[] PLAIN = new Outcome[KINDS.length];
+    private static final Outcome[][] WITH_GOLD = new Outcome[KINDS.length][MAX_CACHED_GOLD + 1];
+    private static final Outcome[][] WITH_ITEM = new Outcome[KINDS.length][Item.count()];
+    private static final Outcome[][] WITH_TREASURE = new Outcome[KINDS.length][Treasure.values().length];
+
+    static {
+        for (Kind kind : KINDS) {
+            int k = kind.ordinal();
+            PLAIN[k] = new Outcome(kind, 0, null, null);
+            for (int gold = 0; gold <= MAX_CACHED_GOLD; gold++) {
+                WITH_GOLD[k][gold] = new Outcome(kind, gold, null, null);
+            }
+            for (Item item : Item.values()) {
+                WITH_ITEM[k][item.ordinal()] = new Outcome(kind, 0, item, null);
+            }
+            for (Treasure treasure : Treasure.values()) {
+                WITH_TREASURE[k][treasure.ordinal()] = new Outcome(kind, 0, null, treasure);
+            }
+        }
+    }
+
+    // instance variables
+    private final Kind kind;
+    private final int gold;
+    private final Item item;
+    private final Treasure treasure;
+
+    private Outcome(Kind kind, int gold, Item item, Treasure treasure) {
+        this.kind = kind;
+        this.gold = gold;
+        this.item = item;
+        this.treasure = treasure;
+    }
+
+    public static Outcome of(Kind kind) {
+        return PLAIN[kind.ordinal()];
+    }
+
+    /**
+     * @param kind What happened.
+     * @param gold The gold involved; amounts the game never produces get an outcome of their own.
+     * @return The outcome.
+     */
+    public static Outcome of(Kind kind, int gold) {
+        if (gold >= 0 && gold <= MAX_CACHED_GOLD) {
+            return WITH_GOLD[kind.ordinal()][gold];
+        }
+        return new Outcome(kind, gold, null, null);
+    }
+
+    public static Outcome of(Kind kind, Item item) {
+        return WITH_ITEM[kind.ordinal()][item.ordinal()];
+    }
+
+    public static Outcome of(Kind kind, Treasure treasure) {
+        return WITH_TREASURE[kind.ordinal()][treasure.ordinal()];
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getGold() {
+        return gold;
+    }
+
+    public Item getItem() {
+        return item;
+    }
+
+    public Treasure getTreasure() {
+        return treasure;
+    }
+
+    /**
+     * @return true if the hunter made it out of town.
+     */
+    public boolean leftTown() {
+        return kind == Kind.TOWN_LEFT || kind == Kind.TOWN_LEFT_ITEM_BROKE || kind == Kind.TOWN_LEFT_ITEM_LOST;
+    }
+
+    public String toString() {
+        String str = kind.name().toLowerCase().replace('_', ' ');
+        if (item != null) {
+            str += ": " + item.getItemName();
+        } else if (treasure != null) {
+            str += ": " + treasure.getTreasureName();
+        } else if (gold != 0) {
+            str += ", " + gold + " gold";
+        }
+        return str;
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * The OutcomeFormatter puts the Outcomes of actions in town into words.<p>
+ * It is the only place the town's messages are written, and it returns straight away for a
+ * headless Renderer, so simulations and servers without a watcher never build any of the text.
+ * Messages that never change are kept as constants; only the gold amounts and names are joined in.
+ */
+
+public class OutcomeFormatter {
+    // constants
+    private static final String NO_TROUBLE = Colors.RED + "You couldn't find any trouble" + Colors.RESET;
+    private static final String BRAWL = Colors.RED + "You want trouble, stranger!  You got it!\nOof! Umph! Ow!\n" + Colors.RESET;
+    private static final String BRAWL_WON = Colors.RED + "Okay, stranger! You proved yer mettle. Here, take my gold." + Colors.RESET
+            + Colors.RED + "\nYou won the brawl and receive " + Colors.YELLOW;
+    private static final String BRAWL_LOST = Colors.RED + "That'll teach you to go lookin' fer trouble in MY town! Now pay up!" + Colors.RESET
+            + Colors.RED + "\nYou lost the brawl and pay " + Colors.YELLOW;
+    private static final String SWORD = "\nThe brawler, seeing your sword, realizes he picked a losing fight and gives you his gold ";
+    private static final String SLEEPY = ".\nWe're just a sleepy little town with mild mannered folk.";
+    private static final String TOUGH = ".\nIt's pretty rough around here, so watch yourself.";
+
+    private static final String[] FOUND = {"You have found a crown!", "You have found a trophy!", "You have found gem!"};
+    private static final String[] TOWN_LEFT = new String[Item.count()];
+    private static final String[] DESCRIPTIONS = new String[Terrain.count()];
+
+    static {
+        for (int i = 0; i < Terrain.count(); i++) {
+            Terrain terrain = Terrain.of(i);
+            TOWN_LEFT[terrain.getItem().ordinal()] = "You used your " + Colors.PURPLE + terrain.getNeededItem() + " to cross the "
+                    + Colors.CYAN + terrain.getTerrainName() + Colors.RESET + "." + Colors.RESET;
+            DESCRIPTIONS[i] = "This nice little town is surrounded by " + Colors.CYAN + terrain.getTerrainName() + Colors.RESET + ".";
+        }
+    }
+
+    /**
+     * @param terrain A town's terrain.
+     * @return The line describing a town surrounded by it.
+     */
+    public static String describe(Terrain terrain) {
+        return DESCRIPTIONS[terrain.getIndex()];
+    }
+
+    /**
+     * Shows what an action turned up right away: the results of hunting and digging,
+     * and the brawler backing off from a sword. Other outcomes only show up as news.
+     *
+     * @param outcome What happened.
+     * @param out Where the text goes.
+     */
+    public static void report(Outcome outcome, Renderer out) {
+        if (out.isHeadless()) {
+            return;
+        }
+        switch (outcome.getKind()) {
+            case TREASURE_FOUND:
+                out.println(FOUND[outcome.getTreasure().ordinal()]);
+                break;
+            case TREASURE_ALREADY_FOUND:
+                out.println(FOUND[outcome.getTreasure().ordinal()]);
+                out.println("You have already found this treasure!");
+                break;
+            case TREASURE_TAKEN:
+                out.println("Somebody has already dug up the " + outcome.getTreasure().getTreasureName() + " here!");
+                break;
+            case DUST:
+                out.println("You have found dust!");
+                break;
+            case GOLD_DUG:
+                out.println("You have dug out " + outcome.getGold() + " gold!");
+                break;
+            case DIRT:
+                out.println("You dug but only found dirt!");
+                break;
+            case NO_SHOVEL:
+                out.println("You need a shovel!");
+                break;
+            case BRAWL_WON_WITH_SWORD:
+                out.println(Colors.RED_CODE, SWORD);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Shows a town's news: the welcome, the last brawl, or how leaving went.
+     *
+     * @param outcome The town's latest news.
+     * @param hunterName The name of the hunter in town.
+     * @param out Where the text goes.
+     */
+    public static void news(Outcome outcome, String hunterName, Renderer out) {
+        if (out.isHeadless()) {
+            return;
+        }
+        Item item = outcome.getItem();
+        switch (outcome.getKind()) {
+            case ARRIVED_SLEEPY:
+                out.println("Welcome to town, " + hunterName + SLEEPY);
+                break;
+            case ARRIVED_TOUGH:
+                out.println("Welcome to town, " + hunterName + TOUGH);
+                break;
+            case NO_TROUBLE:
+                out.println(NO_TROUBLE);
+                break;
+            case BRAWL_WON:
+                out.print(BRAWL);
+                out.println(BRAWL_WON + outcome.getGold() + " gold." + Colors.RESET);
+                break;
+            case BRAWL_WON_WITH_SWORD:
+                out.println(BRAWL_WON + outcome.getGold() + " gold." + Colors.RESET);
+                break;
+            case BRAWL_LOST:
+                out.print(BRAWL);
+                out.println(BRAWL_LOST + outcome.getGold() + " gold." + Colors.RESET);
+                break;
+            case TOWN_LEFT:
+                out.println(TOWN_LEFT[item.ordinal()]);
+                break;
+            case TOWN_LEFT_ITEM_LOST:
+                out.print(TOWN_LEFT[item.ordinal()]);
+                out.println("\nUnfortunately, you lost your " + Colors.PURPLE + item.getItemName() + Colors.RESET);
+                break;
+            case TOWN_LEFT_ITEM_BROKE:
+                out.print(TOWN_LEFT[item.ordinal()]);
+                out.println("\nUnfortunately, your " + Colors.PURPLE + item.getItemName() + " broke." + Colors.RESET);
+                break;
+            case CANNOT_LEAVE:
+                out.println("You can't leave town, " + hunterName + ". You don't have a " + item.getItemName() + ".");
+                break;
+            default:
+                out.println();
+                break;
+        }
+    }
+}
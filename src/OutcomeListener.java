@@ -0,0 +1,13 @@
+/**
+ * An OutcomeListener is told the Outcome of every action the hunter takes in town, as it happens.
+ */
+
+public interface OutcomeListener {
+    /** A listener that ignores everything. */
+    OutcomeListener NONE = outcome -> { };
+
+    /**
+     * @param outcome What happened.
+     */
+    void onOutcome(Outcome outcome);
+}
@@ -0,0 +1,59 @@
+/**
+ * A Policy makes every decision a player makes in the Treasure Hunter game.<p>
+ * The console game reads the answers from the keyboard, while the headless engine
+ * asks a bot, so the same TreasureHunter, Town and Shop logic runs in both cases.
+ */
+
+public interface Policy {
+    /**
+     * Called when a game starts or resumes, with a read-only view of that game
+     * that stays up to date for the rest of it.
+     *
+     * @param game The game being played.
+     */
+    default void start(GameView game) {
+    }
+
+    /**
+     * @return The name of the hunter.
+     */
+    String hunterName();
+
+    /**
+     * @return The mode letter: "e"asy, "n"ormal, "h"ard, "t"est or "s"amurai.
+     */
+    String mode();
+
+    /**
+     * Chooses the next menu option.
+     *
+     * @return One of "b", "s", "m", "l", "h", "d" or "x".
+     */
+    String nextMove();
+
+    /**
+     * Chooses the item to buy or sell once inside the shop.
+     *
+     * @param buying true when buying, false when selling.
+     * @return The lowercase name of the item.
+     */
+    String chooseItem(boolean buying);
+
+    /**
+     * Accepts or declines the price the shopkeeper offers.
+     *
+     * @param item The item being bought or sold.
+     * @param cost The price offered.
+     * @param buying true when buying, false when selling.
+     * @return true if the deal should go through.
+     */
+    boolean confirm(String item, int cost, boolean buying);
+
+    /**
+     * @return true if the answers to the next questions are already known, so the game
+     *         need not show anything and wait before asking them.
+     */
+    default boolean hasPendingInput() {
+        return false;
+    }
+}
@@ -0,0 +1,17 @@
+import java.util.SplittableRandom;
+
+/**
+ * Creates a fresh bot Policy for each game a simulation plays.<p>
+ * A bot that plays at random takes the random source, so its factory can be a constructor
+ * reference such as {@code RandomPolicy::new}; bots that always play the same way ignore it.
+ */
+
+public interface PolicyFactory {
+    /**
+     * @param mode The mode letter the game is played in.
+     * @param maxTurns The number of turns to play before giving up.
+     * @param rng A random source for the bot's own choices.
+     * @return A policy for one game.
+     */
+    Policy create(String mode, int maxTurns, SplittableRandom rng);
+}
@@ -0,0 +1,447 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The PopulationSimulator plays a whole population of RandomPolicy hunters at once, without any game objects.<p>
+ * Where the HeadlessEngine builds a TreasureHunter, Hunter, Town and Shop for every game, the population
+ * keeps each piece of state for all hunters in one primitive array: gold, kit and treasure bitmasks,
+ * the terrain and toughness of the town each hunter is in, whether it has been searched, and a random
+ * state per hunter. A step moves every hunter still playing on by one turn, following the rules of
+ * Town.hunt(), dig(), lookForTrouble() and leaveTown(), the shop's prices and the menu loop of
+ * TreasureHunter, including their quirks, with the numbers taken from the same Rules. Each step is a
+ * plain loop over the arrays, split into ranges across a ForkJoinPool, so tens of millions of hunters
+ * fit in a few hundred megabytes.<p>
+ * Every hunter draws from one SplitMix64 sequence of its own instead of the game's and the bot's
+ * SplittableRandom, so the population plays different games from a HeadlessEngine run with the same
+ * seed, but by the same odds. main() checks that by playing both and comparing the results.
+ * World maps, Metrics and GameStats are not part of a population.
+ */
+
+public class PopulationSimulator {
+    // constants
+    private static final int HUNTERS_PER_TASK = 1 << 14;
+    private static final int MIN_HUNTERS_PER_TASK = 256;
+    private static final int TASKS_PER_THREAD = 4;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+    private static final double Z_LIMIT = 3.29; // two-sided 99.9%
+
+    private static final int MOVES = 6;
+    private static final int BUY = 0;
+    private static final int SELL = 1;
+    private static final int MOVE_ON = 2;
+    private static final int BRAWL = 3;
+    private static final int HUNT = 4;
+    private static final int DIG = 5;
+
+    private static final int TOUGH = 1;
+    private static final int TOWN_SEARCHED = 2;
+    private static final int GOLD_SEARCHED = 4;
+
+    private static final long SWORD = Item.SWORD.bit();
+    private static final long SHOVEL = Item.SHOVEL.bit();
+
+    // the item needed to cross each terrain, by Terrain index
+    private static final long[] CROSSING = new long[Terrain.count()];
+
+    static {
+        for (int i = 0; i < CROSSING.length; i++) {
+            CROSSING[i] = Terrain.of(i).getItem().bit();
+        }
+    }
+
+    // instance variables
+    private int size;
+    private String mode;
+    private int maxTurns;
+    private double toughness;
+    private boolean easy;
+    private double breakChance;
+    private int huntSides;
+    private int digGold;
+    private int dirtOneIn;
+    private int[] buyPrices;
+    private int[] sellPrices;
+    private ForkJoinPool pool;
+    private int huntersPerTask;
+
+    // one entry per hunter
+    private int[] gold;
+    private long[] kit;
+    private byte[] treasures;
+    private byte[] terrain;
+    private byte[] flags;
+    private int[] turns;
+    private byte[] result; // 0 while playing, otherwise 1 + the GameResult ordinal
+    private long[] random;
+
+    /**
+     * Creates a population playing by the standard Rules.
+     *
+     * @param size How many hunters there are.
+     * @param mode The mode letter every hunter plays in.
+     * @param maxTurns The number of turns a hunter plays before giving up.
+     * @param seed The seed the whole population is derived from.
+     * @param parallelism The number of threads to play on.
+     */
+    public PopulationSimulator(int size, String mode, int maxTurns, long seed, int parallelism) {
+        this(size, mode, maxTurns, seed, new ForkJoinPool(parallelism), Rules.STANDARD);
+    }
+
+    /**
+     * Creates the population, every hunter standing in its first town.<p>
+     * A step is split into a few ranges for each thread of the pool, so even a small population is
+     * played on all of them.
+     *
+     * @param size How many hunters there are.
+     * @param mode The mode letter every hunter plays in.
+     * @param maxTurns The number of turns a hunter plays before giving up.
+     * @param seed The seed the whole population is derived from.
+     * @param pool The pool to play on, which may be shared with other populations and engines.
+     * @param rules The numbers the games are balanced by.
+     */
+    public PopulationSimulator(int size, String mode, int maxTurns, long seed, ForkJoinPool pool, Rules rules) {
+        this.size = size;
+        this.mode = mode;
+        this.maxTurns = maxTurns;
+        easy = mode.equals("e");
+        toughness = rules.getToughness(mode);
+        breakChance = rules.getBreakChance();
+        huntSides = rules.getHuntSides();
+        digGold = rules.getDigGold();
+        dirtOneIn = rules.getDirtOneIn();
+
+        // the shop's prices, with 0 for anything it does not stock, as Shop.getCostOfItem() gives them
+        ItemCatalog catalog = rules.getCatalog();
+        long stock = catalog.getStandardStock() | (mode.equals("s") ? SWORD : 0);
+        int[] buyBack = catalog.buyBackPrices(rules.getMarkdown(mode));
+        buyPrices = new int[Item.count()];
+        sellPrices = new int[Item.count()];
+        for (Item item : Item.values()) {
+            if ((stock & item.bit()) != 0) {
+                buyPrices[item.ordinal()] = catalog.buyPrice(item);
+                sellPrices[item.ordinal()] = buyBack[item.ordinal()];
+            }
+        }
+
+        gold = new int[size];
+        kit = new long[size];
+        treasures = new byte[size];
+        terrain = new byte[size];
+        flags = new byte[size];
+        turns = new int[size];
+        result = new byte[size];
+        random = new long[size];
+        this.pool = pool;
+        huntersPerTask = Math.max(MIN_HUNTERS_PER_TASK,
+                Math.min(HUNTERS_PER_TASK, size / (pool.getParallelism() * TASKS_PER_THREAD)));
+
+        int startingGold = TreasureHunter.startingGold(mode);
+        long startingKit = TreasureHunter.startingKit(mode);
+        for (int i = 0; i < size; i++) {
+            random[i] = HeadlessEngine.gameRandom(seed, i).nextLong();
+            gold[i] = startingGold;
+            kit[i] = startingKit;
+            enterTown(i);
+        }
+    }
+
+    /**
+     * Plays every hunter to the end, one turn of the whole population at a time.
+     *
+     * @return The totals of all the games.
+     */
+    public HeadlessEngine.Tally run() {
+        while (step() > 0) {
+            // every step is one turn for every hunter still playing
+        }
+        HeadlessEngine.Tally tally = new HeadlessEngine.Tally();
+        GameResult[] results = GameResult.values();
+        for (int i = 0; i < size; i++) {
+            tally.add(results[result[i] - 1], turns[i], gold[i]);
+        }
+        return tally;
+    }
+
+    /**
+     * Moves every hunter still playing on by one turn.
+     *
+     * @return How many hunters are still playing afterwards.
+     */
+    public long step() {
+        return pool.invoke(new Step(0, size));
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * One pass of TreasureHunter.showMenu()'s loop for one hunter, with RandomPolicy's choices.
+     *
+     * @param i The hunter.
+     * @return true if the hunter is still playing.
+     */
+    private boolean turn(int i) {
+        if (treasures[i] == Treasure.ALL) {
+            return finish(i, GameResult.WON);
+        }
+        turns[i]++;
+        if (turns[i] > maxTurns) {
+            return finish(i, GameResult.QUIT);
+        }
+        switch (nextInt(i, MOVES)) {
+            case BUY:
+                buy(i, nextInt(i, Item.count()));
+                break;
+            case SELL:
+                sell(i, nextInt(i, Item.count()));
+                break;
+            case MOVE_ON:
+                moveOn(i);
+                break;
+            case BRAWL:
+                brawl(i);
+                break;
+            case HUNT:
+                hunt(i);
+                break;
+            default:
+                dig(i);
+                break;
+        }
+        if (gold[i] < 0) {
+            return finish(i, GameResult.BROKE);
+        }
+        return true;
+    }
+
+    private boolean finish(int i, GameResult how) {
+        result[i] = (byte) (how.ordinal() + 1);
+        return false;
+    }
+
+    /**
+     * Shop.enter() buying, then Hunter.buyItem(). A price of 0 means the shop does not stock the item,
+     * which is refused to a hunter with a sword and handed over for nothing to one without.
+     */
+    private void buy(int i, int item) {
+        int price = buyPrices[item];
+        boolean sword = (kit[i] & SWORD) != 0;
+        if (price == 0 && sword) {
+            return;
+        }
+        if (sword) {
+            // the shopkeeper pays the price to the hunter before ringing the sale up
+            gold[i] += price == 1 ? 0 : price;
+        }
+        long bit = 1L << item;
+        if (gold[i] < price || (kit[i] & bit) != 0) {
+            return;
+        }
+        gold[i] -= price;
+        if (bit == SWORD) {
+            gold[i]++;
+        }
+        kit[i] |= bit;
+    }
+
+    /**
+     * Shop.enter() selling, then Hunter.sellItem().
+     */
+    private void sell(int i, int item) {
+        long bit = 1L << item;
+        int price = sellPrices[item];
+        if (price > 0 && (kit[i] & bit) != 0) {
+            gold[i] += price;
+            kit[i] &= ~bit;
+        }
+    }
+
+    /**
+     * Town.leaveTown() and checkItemBreak(), then a new town.
+     */
+    private void moveOn(int i) {
+        long needed = CROSSING[terrain[i]];
+        if ((kit[i] & needed) == 0) {
+            return;
+        }
+        double broke = nextDouble(i) + (easy ? 100 : 0);
+        if (broke < breakChance) {
+            kit[i] &= ~needed;
+        }
+        enterTown(i);
+    }
+
+    /**
+     * Town.lookForTrouble().
+     */
+    private void brawl(int i) {
+        double noTroubleChance = (flags[i] & TOUGH) != 0 ? 0.66 : 0.33;
+        if (nextDouble(i) > noTroubleChance) {
+            return;
+        }
+        int goldDiff = nextInt(i, 10) + 1;
+        if ((kit[i] & SWORD) != 0) {
+            noTroubleChance = -100;
+        }
+        if (nextDouble(i) > noTroubleChance) {
+            gold[i] += goldDiff;
+        } else {
+            gold[i] -= goldDiff;
+        }
+    }
+
+    /**
+     * Town.hunt(), once per town.
+     */
+    private void hunt(int i) {
+        if ((flags[i] & TOWN_SEARCHED) != 0) {
+            return;
+        }
+        int rand = nextInt(i, huntSides);
+        if (rand < Treasure.values().length) {
+            treasures[i] |= (byte) (1 << rand);
+        }
+        flags[i] |= TOWN_SEARCHED;
+    }
+
+    /**
+     * Town.dig(), once per town; the hunter without a shovel still uses up the dig.
+     */
+    private void dig(int i) {
+        if ((flags[i] & GOLD_SEARCHED) != 0) {
+            return;
+        }
+        int randGold = nextInt(i, digGold) + 1;
+        int randDig = nextInt(i, dirtOneIn);
+        if ((kit[i] & SHOVEL) != 0 && randDig > 0) {
+            gold[i] += randGold;
+        }
+        flags[i] |= GOLD_SEARCHED;
+    }
+
+    /**
+     * The Town constructor: a random terrain, then a roll for toughness.
+     */
+    private void enterTown(int i) {
+        terrain[i] = (byte) nextInt(i, Terrain.count());
+        flags[i] = nextDouble(i) < toughness ? (byte) TOUGH : 0;
+    }
+
+    /**
+     * SplitMix64, the generator behind SplittableRandom, stepping the hunter's own state.
+     */
+    private long nextLong(int i) {
+        long z = random[i] += GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return A number from 0 to bound - 1; the bias of the multiply-shift is below one part in 2^27 for these bounds.
+     */
+    private int nextInt(int i, int bound) {
+        return (int) (((nextLong(i) >>> 32) * bound) >>> 32);
+    }
+
+    private double nextDouble(int i) {
+        return (nextLong(i) >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * A range of hunters that splits itself in half until it is small enough to step on one thread.
+     */
+    @SuppressWarnings("serial")
+    private class Step extends RecursiveTask<Long> {
+        private int from;
+        private int to;
+
+        Step(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        protected Long compute() {
+            if (to - from <= huntersPerTask) {
+                long playing = 0;
+                for (int i = from; i < to; i++) {
+                    if (result[i] == 0 && turn(i)) {
+                        playing++;
+                    }
+                }
+                return playing;
+            }
+            int middle = (from + to) >>> 1;
+            Step left = new Step(from, middle);
+            left.fork();
+            long playing = new Step(middle, to).compute();
+            return playing + left.join();
+        }
+    }
+
+    /**
+     * @return How many standard errors apart two means are, from their 95% margins.
+     */
+    private static double zScore(double mean1, double margin1, double mean2, double margin2) {
+        return 1.96 * (mean1 - mean2) / Math.sqrt(margin1 * margin1 + margin2 * margin2);
+    }
+
+    /**
+     * @return How many standard errors apart two rates are, using the pooled rate.
+     */
+    private static double zScore(long hits1, long n1, long hits2, long n2) {
+        double p = (double) (hits1 + hits2) / (n1 + n2);
+        double se = Math.sqrt(p * (1 - p) * (1.0 / n1 + 1.0 / n2));
+        return se == 0 ? 0 : ((double) hits1 / n1 - (double) hits2 / n2) / se;
+    }
+
+    private static boolean report(String what, double z) {
+        boolean agrees = Math.abs(z) < Z_LIMIT;
+        System.out.printf("  %-10s z = %6.2f  %s%n", what, z, agrees ? "agrees" : "DIFFERS");
+        return agrees;
+    }
+
+    /**
+     * Plays a population, then the same number of object games (or the number given) on the HeadlessEngine,
+     * and checks that the win, broke and quit rates and the mean turns and gold agree to 99.9% confidence.<p>
+     * Usage: java PopulationSimulator [hunters] [mode] [maxTurns] [threads] [seed] [objectGames]<p>
+     * An objectGames of 0 skips the comparison.
+     */
+    public static void main(String[] args) {
+        int hunters = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        String mode = args.length > 1 ? args[1] : "n";
+        int maxTurns = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+        long objectGames = args.length > 5 ? Long.parseLong(args[5]) : Math.min(hunters, 1_000_000);
+
+        long start = System.nanoTime();
+        PopulationSimulator population = new PopulationSimulator(hunters, mode, maxTurns, seed, threads);
+        HeadlessEngine.Tally simulated = population.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        population.shutdown();
+        System.out.println("population: " + simulated);
+        System.out.printf("%.3f s on %d threads, %.0f games/sec%n", seconds, threads, hunters / seconds);
+        if (objectGames == 0) {
+            return;
+        }
+
+        HeadlessEngine engine = new HeadlessEngine(mode, maxTurns, seed + 1, threads);
+        start = System.nanoTime();
+        HeadlessEngine.Tally played = engine.run(objectGames);
+        seconds = (System.nanoTime() - start) / 1e9;
+        engine.shutdown();
+        System.out.println("objects:    " + played);
+        System.out.printf("%.3f s on %d threads, %.0f games/sec%n", seconds, threads, objectGames / seconds);
+
+        System.out.println("population against objects:");
+        boolean agrees = report("won", zScore(simulated.won, simulated.games, played.won, played.games));
+        agrees &= report("broke", zScore(simulated.broke, simulated.games, played.broke, played.games));
+        agrees &= report("quit", zScore(simulated.quit, simulated.games, played.quit, played.games));
+        agrees &= report("turns", zScore(simulated.meanTurns(), simulated.turnsMargin(), played.meanTurns(), played.turnsMargin()));
+        agrees &= report("gold", zScore(simulated.meanGold(), simulated.goldMargin(), played.meanGold(), played.goldMargin()));
+        System.out.println(agrees ? "the population plays by the same odds" : "the population does not match the game");
+    }
+}
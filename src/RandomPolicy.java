@@ -0,0 +1,54 @@
+import java.util.SplittableRandom;
+
+/**
+ * The RandomPolicy is the simplest bot: it picks every menu option and shop item at random
+ * and gives up the hunt once it has played a set number of turns.
+ */
+
+public class RandomPolicy implements Policy {
+    // constants
+    private static final String[] MOVES = {"b", "s", "m", "l", "h", "d"};
+    private static final String[] ITEMS = {"water", "rope", "machete", "horse", "boat", "boots", "shovel", "sword"};
+
+    // instance variables
+    private String mode;
+    private int maxTurns;
+    private int turns;
+    private SplittableRandom rng;
+
+    /**
+     * @param mode The mode letter to play in.
+     * @param maxTurns The number of turns to play before exiting.
+     * @param rng The random source the bot's choices are drawn from.
+     */
+    public RandomPolicy(String mode, int maxTurns, SplittableRandom rng) {
+        this.mode = mode;
+        this.rng = rng;
+        this.maxTurns = maxTurns;
+        turns = 0;
+    }
+
+    public String hunterName() {
+        return "bot";
+    }
+
+    public String mode() {
+        return mode;
+    }
+
+    public String nextMove() {
+        turns++;
+        if (turns > maxTurns) {
+            return "x";
+        }
+        return MOVES[rng.nextInt(MOVES.length)];
+    }
+
+    public String chooseItem(boolean buying) {
+        return ITEMS[rng.nextInt(ITEMS.length)];
+    }
+
+    public boolean confirm(String item, int cost, boolean buying) {
+        return true;
+    }
+}
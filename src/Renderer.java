@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The Renderer collects everything the game shows during a turn into one reusable frame buffer.<p>
+ * Nothing reaches the terminal until flush() is called, which happens right before the game waits
+ * for the player, so a whole turn (news, hunter status, town and menu) costs a single write.<p>
+ * In no-color mode the ANSI color codes are skipped while text is copied into the frame,
+ * and a headless Renderer has no output at all and ignores everything it is given.
+ */
+
+public class Renderer {
+    // constants
+    private static final int INITIAL_SIZE = 2048;
+
+    // instance variables
+    private OutputStream sink;
+    private boolean color;
+    private byte[] frame;
+    private int length;
+
+    /**
+     * @param sink Where finished frames are written, or null to discard everything.
+     * @param color Whether ANSI color codes are written.
+     */
+    public Renderer(OutputStream sink, boolean color) {
+        this.sink = sink;
+        this.color = color;
+        frame = new byte[sink == null ? 0 : INITIAL_SIZE];
+        length = 0;
+    }
+
+    /**
+     * @return A Renderer that shows nothing, for games nobody is watching.
+     */
+    public static Renderer headless() {
+        return new Renderer(null, false);
+    }
+
+    public boolean isHeadless() {
+        return sink == null;
+    }
+
+    /**
+     * Converts fixed text into bytes once so it can be copied into frames as-is.
+     *
+     * @param text The text.
+     * @return The UTF-8 bytes of the text.
+     */
+    public static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Adds text to the frame, dropping any ANSI color codes in no-color mode.
+     *
+     * @param text The text to add.
+     */
+    public void print(String text) {
+        if (sink == null) {
+            return;
+        }
+        int size = text.length();
+        ensureCapacity(size * 3);
+        for (int i = 0; i < size; i++) {
+            char c = text.charAt(i);
+            if (c == '\033' && !color) {
+                // skip up to and including the 'm' that ends the code
+                while (i < size && text.charAt(i) != 'm') {
+                    i++;
+                }
+            } else if (c < 0x80) {
+                frame[length++] = (byte) c;
+            } else if (c < 0x800) {
+                frame[length++] = (byte) (0xC0 | (c >> 6));
+                frame[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < size) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                frame[length++] = (byte) (0xF0 | (codePoint >> 18));
+                frame[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                frame[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                frame[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                frame[length++] = (byte) (0xE0 | (c >> 12));
+                frame[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                frame[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    public void println(String text) {
+        print(text);
+        println();
+    }
+
+    public void println() {
+        if (sink == null) {
+            return;
+        }
+        ensureCapacity(1);
+        frame[length++] = '\n';
+    }
+
+    /**
+     * Adds bytes prepared with bytes() to the frame unchanged.
+     *
+     * @param text The bytes to add.
+     */
+    public void write(byte[] text) {
+        if (sink == null) {
+            return;
+        }
+        ensureCapacity(text.length);
+        System.arraycopy(text, 0, frame, length, text.length);
+        length += text.length;
+    }
+
+    /**
+     * Adds a color code from Colors to the frame, unless in no-color mode.
+     *
+     * @param code One of the *_CODE constants in Colors.
+     */
+    public void color(byte[] code) {
+        if (color) {
+            write(code);
+        }
+    }
+
+    /**
+     * Adds text to the frame in the given color.
+     *
+     * @param code One of the *_CODE constants in Colors.
+     * @param text The text to add.
+     */
+    public void println(byte[] code, String text) {
+        color(code);
+        print(text);
+        color(Colors.RESET_CODE);
+        println();
+    }
+
+    /**
+     * Writes the frame with a single write and flush, then empties it for the next one.
+     */
+    public void flush() {
+        if (sink == null || length == 0) {
+            return;
+        }
+        try {
+            sink.write(frame, 0, length);
+            sink.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            length = 0;
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > frame.length) {
+            byte[] bigger = new byte[Math.max(frame.length * 2, length + extra)];
+            System.arraycopy(frame, 0, bigger, 0, length);
+            frame = bigger;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The ReplayRunner plays back recorded sessions with no console, for regression runs.<p>
+ * A recorded session is a text file holding exactly what the player typed, one line per answer.
+ * If its first line is "#seed" followed by a number, the game's random source is seeded with it
+ * so the replay reproduces the original game. Sessions are independent and are replayed in parallel,
+ * and one line per session (file, result, turns and gold) is printed so runs can be diffed.
+ */
+
+public class ReplayRunner {
+    // constants
+    private static final String SEED_HEADER = "#seed ";
+
+    /**
+     * Replays one recorded session.
+     *
+     * @param session The recorded session file.
+     * @return The finished game.
+     */
+    public static TreasureHunter replay(Path session) {
+        try (InputStream in = Files.newInputStream(session)) {
+            StreamInput input = new StreamInput(in);
+            String first = input.nextLine();
+            SplittableRandom rng;
+            InputSource lines;
+            if (first != null && first.startsWith(SEED_HEADER)) {
+                rng = new SplittableRandom(Long.parseLong(first.substring(SEED_HEADER.length()).trim()));
+                lines = input;
+            } else {
+                rng = new SplittableRandom();
+                lines = new FirstLineAgain(first, input);
+            }
+            TreasureHunter game = new TreasureHunter(new InputPolicy(lines), Renderer.headless(), rng);
+            game.play();
+            return game;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Hands back a line that was read ahead, then carries on with the rest of the input.
+     */
+    private static class FirstLineAgain implements InputSource {
+        private String first;
+        private InputSource rest;
+
+        FirstLineAgain(String first, InputSource rest) {
+            this.first = first;
+            this.rest = rest;
+        }
+
+        public String nextLine() {
+            if (first != null) {
+                String line = first;
+                first = null;
+                return line;
+            }
+            return rest.nextLine();
+        }
+    }
+
+    /**
+     * Usage: java ReplayRunner (session file or directory)...
+     */
+    public static void main(String[] args) throws IOException {
+        List<Path> sessions = new ArrayList<>();
+        for (String arg : args) {
+            try (Stream<Path> files = Files.walk(Paths.get(arg))) {
+                sessions.addAll(files.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+            }
+        }
+
+        long start = System.nanoTime();
+        List<String> results = sessions.parallelStream()
+                .map(session -> {
+                    TreasureHunter game = replay(session);
+                    return session + " " + game.getResult() + " " + game.getCount() + " turns " + game.getHunter().getGold() + " gold";
+                })
+                .collect(Collectors.toList());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (String result : results) {
+            System.out.println(result);
+        }
+        System.out.printf("%d sessions in %.3f s, %.0f sessions/sec%n", sessions.size(), seconds, sessions.size() / seconds);
+    }
+}
@@ -0,0 +1,218 @@
+import java.util.Arrays;
+
+/**
+ * Rules holds every number the game is balanced by, so that they can be changed without changing the code.<p>
+ * They are the chance for a town to be tough and the shop's markdown in each mode, the shop's prices,
+ * the chance for an item to break when it is used to leave town, and the odds of a hunt or dig.
+ * STANDARD is the game as it has always been played. Rules never change: the with methods return a
+ * new Rules with one number changed, so one Rules can be shared by any number of games and threads.
+ */
+
+public class Rules {
+    // constants
+    private static final int EASY = 0;
+    private static final int NORMAL = 1;
+    private static final int HARD = 2;
+
+    public static final Rules STANDARD = new Rules(new double[] {0.2, 0.4, 0.75}, new double[] {0, 0.5, 0.25},
+            ItemCatalog.STANDARD, 0.5, 10, 20, 2);
+
+    // instance variables
+    private final double[] toughness;
+    private final double[] markdown;
+    private final ItemCatalog catalog;
+    private final double breakChance;
+    private final int huntSides;
+    private final int digGold;
+    private final int dirtOneIn;
+
+    private Rules(double[] toughness, double[] markdown, ItemCatalog catalog, double breakChance,
+                  int huntSides, int digGold, int dirtOneIn) {
+        this.toughness = toughness;
+        this.markdown = markdown;
+        this.catalog = catalog;
+        this.breakChance = breakChance;
+        this.huntSides = huntSides;
+        this.digGold = digGold;
+        this.dirtOneIn = dirtOneIn;
+    }
+
+    /**
+     * @param mode A mode letter; every mode but easy and hard plays by the normal numbers.
+     * @return The chance for a town to be tough.
+     */
+    public double getToughness(String mode) {
+        return toughness[level(mode)];
+    }
+
+    /**
+     * @param mode A mode letter.
+     * @return The fraction of an item's price the shop pays for it.
+     */
+    public double getMarkdown(String mode) {
+        return markdown[level(mode)];
+    }
+
+    /**
+     * @return The prices and listings of the shop.
+     */
+    public ItemCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * @return The chance that the item used to leave a town breaks or is lost, outside easy mode.
+     */
+    public double getBreakChance() {
+        return breakChance;
+    }
+
+    /**
+     * @return The sides of the die a hunt rolls; each treasure is found on one of them.
+     */
+    public int getHuntSides() {
+        return huntSides;
+    }
+
+    /**
+     * @return The most gold a dig can turn up.
+     */
+    public int getDigGold() {
+        return digGold;
+    }
+
+    /**
+     * @return A dig turns up dirt one time in this many.
+     */
+    public int getDirtOneIn() {
+        return dirtOneIn;
+    }
+
+    public Rules withToughness(String mode, double chance) {
+        double[] changed = toughness.clone();
+        changed[level(mode)] = chance;
+        return new Rules(changed, markdown, catalog, breakChance, huntSides, digGold, dirtOneIn);
+    }
+
+    public Rules withMarkdown(String mode, double fraction) {
+        double[] changed = markdown.clone();
+        changed[level(mode)] = fraction;
+        return new Rules(toughness, changed, catalog, breakChance, huntSides, digGold, dirtOneIn);
+    }
+
+    /**
+     * @param item An item.
+     * @param price Its listed price.
+     * @return Rules with the shop selling the item at that price.
+     */
+    public Rules withPrice(Item item, int price) {
+        int[] prices = new int[Item.count()];
+        for (Item each : Item.values()) {
+            prices[each.ordinal()] = each == item ? price : catalog.listedPrice(each);
+        }
+        return new Rules(toughness, markdown, new ItemCatalog(prices), breakChance, huntSides, digGold, dirtOneIn);
+    }
+
+    public Rules withBreakChance(double chance) {
+        return new Rules(toughness, markdown, catalog, chance, huntSides, digGold, dirtOneIn);
+    }
+
+    public Rules withHuntSides(int sides) {
+        return new Rules(toughness, markdown, catalog, breakChance, sides, digGold, dirtOneIn);
+    }
+
+    public Rules withDigGold(int gold) {
+        return new Rules(toughness, markdown, catalog, breakChance, huntSides, gold, dirtOneIn);
+    }
+
+    public Rules withDirtOneIn(int oneIn) {
+        return new Rules(toughness, markdown, catalog, breakChance, huntSides, digGold, oneIn);
+    }
+
+    /**
+     * Reads Rules back from their toString() form, as the Balancer prints them.
+     *
+     * @param text The numbers, as given by toString().
+     * @return The Rules.
+     */
+    public static Rules parse(String text) {
+        Rules rules = STANDARD;
+        for (String setting : text.trim().split(" (?=\\w+=)")) {
+            int equals = setting.indexOf('=');
+            String name = setting.substring(0, equals);
+            String value = setting.substring(equals + 1);
+            switch (name) {
+                case "toughness":
+                    double[] toughness = doubles(value);
+                    rules = rules.withToughness("e", toughness[EASY]).withToughness("n", toughness[NORMAL])
+                            .withToughness("h", toughness[HARD]);
+                    break;
+                case "markdown":
+                    double[] markdown = doubles(value);
+                    rules = rules.withMarkdown("e", markdown[EASY]).withMarkdown("n", markdown[NORMAL])
+                            .withMarkdown("h", markdown[HARD]);
+                    break;
+                case "prices":
+                    double[] prices = doubles(value);
+                    for (Item item : Item.values()) {
+                        rules = rules.withPrice(item, (int) prices[item.ordinal()]);
+                    }
+                    break;
+                case "break":
+                    rules = rules.withBreakChance(Double.parseDouble(value));
+                    break;
+                case "hunt":
+                    rules = rules.withHuntSides(Integer.parseInt(value));
+                    break;
+                case "digGold":
+                    rules = rules.withDigGold(Integer.parseInt(value));
+                    break;
+                case "dirt":
+                    rules = rules.withDirtOneIn(Integer.parseInt(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown rule " + name);
+            }
+        }
+        return rules;
+    }
+
+    private static double[] doubles(String list) {
+        String[] parts = list.substring(1, list.length() - 1).split(", ");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i]);
+        }
+        return values;
+    }
+
+    private static int level(String mode) {
+        if (mode.equals("e")) {
+            return EASY;
+        } else if (mode.equals("h")) {
+            return HARD;
+        }
+        return NORMAL;
+    }
+
+    /**
+     * @return Every number, in a form that is the same for equal Rules and so can name them.
+     */
+    public String toString() {
+        int[] prices = new int[Item.count()];
+        for (Item item : Item.values()) {
+            prices[item.ordinal()] = catalog.listedPrice(item);
+        }
+        return "toughness=" + Arrays.toString(toughness) + " markdown=" + Arrays.toString(markdown)
+                + " prices=" + Arrays.toString(prices) + " break=" + breakChance
+                + " hunt=" + huntSides + " digGold=" + digGold + " dirt=" + dirtOneIn;
+    }
+
+    public boolean equals(Object other) {
+        return other instanceof Rules && toString().equals(other.toString());
+    }
+
+    public int hashCode() {
+        return toString().hashCode();
+    }
+}
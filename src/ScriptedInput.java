@@ -0,0 +1,30 @@
+import java.util.List;
+
+/**
+ * A ScriptedInput plays back a fixed list of commands, as if a player had typed them.
+ */
+
+public class ScriptedInput implements InputSource {
+    // instance variables
+    private List<String> lines;
+    private int next;
+
+    /**
+     * @param lines The lines to hand out, in order.
+     */
+    public ScriptedInput(List<String> lines) {
+        this.lines = lines;
+        next = 0;
+    }
+
+    public ScriptedInput(String... lines) {
+        this(List.of(lines));
+    }
+
+    public String nextLine() {
+        if (next < lines.size()) {
+            return lines.get(next++);
+        }
+        return null;
+    }
+}
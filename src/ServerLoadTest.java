@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test for the GameServer on localhost.<p>
+ * Opens the given number of connections, each of which answers the welcome questions and then sits
+ * idle until every connection is open. It then reports the memory used while they are all idle,
+ * and finally has every player hunt, dig and exit and checks each one reached the farewell.
+ * Last, one player hangs up in the middle of a hunt and comes back with the resume code, which must
+ * carry the hunt on. Without a port it starts its own server in this JVM on a free port.
+ */
+
+public class ServerLoadTest {
+    // constants
+    private static final byte[] WELCOME = "\nloadbot\nn\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TURNS = "h\nd\nl\nx\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FAREWELL = "Fare thee well".getBytes(StandardCharsets.US_ASCII);
+    private static final Pattern RESUME_CODE = Pattern.compile("Your resume code is (\\w+);");
+    private static final String WELCOME_BACK = "Welcome back, loadbot!";
+
+    /**
+     * Usage: java ServerLoadTest [connections] [port] [host]
+     */
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        InetAddress host = args.length > 2 ? InetAddress.getByName(args[2]) : InetAddress.getLoopbackAddress();
+        GameServer server = null;
+        int port;
+        if (args.length > 1) {
+            port = Integer.parseInt(args[1]);
+        } else {
+            server = new GameServer(new InetSocketAddress(host, 0), connections, 60_000);
+            server.start();
+            port = server.getPort();
+        }
+
+        CountDownLatch connected = new CountDownLatch(connections);
+        CountDownLatch play = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(connections);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService players = SessionThreads.newExecutor("player");
+
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            players.execute(() -> {
+                boolean counted = false;
+                try (Socket socket = new Socket(host, port)) {
+                    OutputStream out = socket.getOutputStream();
+                    out.write(WELCOME);
+                    out.flush();
+                    connected.countDown();
+                    counted = true;
+                    play.await();
+                    out.write(TURNS);
+                    out.flush();
+                    if (readsFarewell(socket.getInputStream())) {
+                        completed.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                } catch (IOException | InterruptedException e) {
+                    failed.incrementAndGet();
+                } finally {
+                    if (!counted) {
+                        connected.countDown();
+                    }
+                    finished.countDown();
+                }
+            });
+        }
+
+        connected.await();
+        double connectSeconds = (System.nanoTime() - start) / 1e9;
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long usedBytes = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("%d connections open in %.3f s%n", connections, connectSeconds);
+        if (server != null) {
+            System.out.printf("%d idle sessions, %.1f MB heap in use (%.1f KB per session, client included)%n",
+                    server.getActiveSessions(), usedBytes / 1e6, usedBytes / 1e3 / connections);
+        }
+
+        long playStart = System.nanoTime();
+        play.countDown();
+        finished.await(5, TimeUnit.MINUTES);
+        double playSeconds = (System.nanoTime() - playStart) / 1e9;
+        System.out.printf("%d sessions completed, %d failed, in %.3f s%n", completed.get(), failed.get(), playSeconds);
+        System.out.println(resumesAfterHangUp(host, port) ? "hung-up hunt resumed" : "hung-up hunt was lost");
+
+        players.shutdown();
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    /**
+     * Starts a hunt, hangs up after one move, and comes back with the resume code.
+     *
+     * @return true if the hunt carried on where it was left.
+     */
+    private static boolean resumesAfterHangUp(InetAddress host, int port) throws IOException {
+        String code;
+        try (Socket socket = new Socket(host, port)) {
+            socket.getOutputStream().write(WELCOME);
+            socket.getOutputStream().write("h\n".getBytes(StandardCharsets.US_ASCII));
+            socket.shutdownOutput();
+            // the server saves the hunt before it closes the connection
+            Matcher matcher = RESUME_CODE.matcher(readAll(socket.getInputStream()));
+            if (!matcher.find()) {
+                return false;
+            }
+            code = matcher.group(1);
+        }
+        try (Socket socket = new Socket(host, port)) {
+            socket.getOutputStream().write((code + "\nx\n").getBytes(StandardCharsets.US_ASCII));
+            socket.shutdownOutput();
+            return readAll(socket.getInputStream()).contains(WELCOME_BACK);
+        }
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads everything the server sends until it hangs up, watching for the farewell.
+     */
+    private static boolean readsFarewell(InputStream in) throws IOException {
+        byte[] buffer = new byte[4096];
+        int matched = 0;
+        boolean found = false;
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            for (int i = 0; i < read && !found; i++) {
+                matched = buffer[i] == FAREWELL[matched] ? matched + 1 : (buffer[i] == FAREWELL[0] ? 1 : 0);
+                found = matched == FAREWELL.length;
+            }
+        }
+        return found;
+    }
+}
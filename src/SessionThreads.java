@@ -0,0 +1,33 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads that game sessions run on.<p>
+ * When the JVM has virtual threads, every session gets its own virtual thread, so thousands of
+ * mostly-idle players cost little more than their buffers. On older JVMs it falls back to
+ * daemon platform threads with small stacks.
+ */
+
+public class SessionThreads {
+    // constants
+    private static final long PLATFORM_STACK_SIZE = 256 * 1024;
+
+    /**
+     * @param name The prefix for platform thread names.
+     * @return An executor that starts a new thread for every task.
+     */
+    public static ExecutorService newExecutor(String name) {
+        try {
+            // looked up reflectively so the game still builds and runs on JDKs without virtual threads
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(null, task, name + "-" + count.incrementAndGet(), PLATFORM_STACK_SIZE);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,169 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A SharedTown is what the hunters in one town of a shared World compete for.<p>
+ * Each of the three treasures can be dug up only once, the town has a fixed number of spots with
+ * gold in them, and its shop has a limited number of each item for sale. It also knows who is in
+ * town, so a brawl can be against another hunter.<p>
+ * Every hunter still gets a Town of their own with their own luck; only what is here is shared.
+ * Changes are made while holding a lock, but not one per town: the World hands out a lock from
+ * a fixed set of stripes, so memory does not grow with the towns visited and two busy towns
+ * seldom wait for each other. Hunters' gold never needs the lock, as Hunter changes it with a
+ * compare-and-set.
+ */
+
+public class SharedTown {
+    // constants
+    private static final int INITIAL_HUNTERS = 4;
+
+    // instance variables
+    private final Object lock;
+    private final int[] stock;
+    private int buried;
+    private int digSpots;
+    private Hunter[] present;
+    private int presentCount;
+
+    /**
+     * @param lock The World's lock stripe for this town.
+     * @param shopStock How many of each item the town's shop has.
+     * @param digSpots How many digs turn up gold before the town is dug out.
+     */
+    public SharedTown(Object lock, int shopStock, int digSpots) {
+        this.lock = lock;
+        this.digSpots = digSpots;
+        stock = new int[Item.count()];
+        Arrays.fill(stock, shopStock);
+        buried = Treasure.ALL;
+        present = new Hunter[INITIAL_HUNTERS];
+        presentCount = 0;
+    }
+
+    /**
+     * @param hunter A hunter who has come to town.
+     */
+    public void arrive(Hunter hunter) {
+        synchronized (lock) {
+            if (presentCount == present.length) {
+                present = Arrays.copyOf(present, presentCount * 2);
+            }
+            present[presentCount++] = hunter;
+        }
+    }
+
+    /**
+     * @param hunter A hunter who has left town, or whose game is over.
+     */
+    public void depart(Hunter hunter) {
+        synchronized (lock) {
+            for (int i = 0; i < presentCount; i++) {
+                if (present[i] == hunter) {
+                    present[i] = present[--presentCount];
+                    present[presentCount] = null;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Picks someone in town for the hunter to brawl with.
+     *
+     * @param hunter The hunter looking for trouble.
+     * @param rng The hunter's random source.
+     * @return Another hunter in town, or null if the hunter is alone.
+     */
+    public Hunter rival(Hunter hunter, SplittableRandom rng) {
+        synchronized (lock) {
+            if (presentCount < 2) {
+                return null;
+            }
+            Hunter rival = present[rng.nextInt(presentCount)];
+            if (rival == hunter) {
+                rival = present[presentCount - 1] == hunter ? present[0] : present[presentCount - 1];
+            }
+            return rival;
+        }
+    }
+
+    /**
+     * @param treasure A treasure a hunter has found here.
+     * @return true if nobody had dug it up yet; it is gone for everybody else.
+     */
+    public boolean unearth(Treasure treasure) {
+        synchronized (lock) {
+            if ((buried & treasure.bit()) == 0) {
+                return false;
+            }
+            buried &= ~treasure.bit();
+            return true;
+        }
+    }
+
+    /**
+     * @return true if there was still a spot with gold in it, which is now used up.
+     */
+    public boolean dig() {
+        synchronized (lock) {
+            if (digSpots == 0) {
+                return false;
+            }
+            digSpots--;
+            return true;
+        }
+    }
+
+    /**
+     * @param item An item a hunter wants to buy.
+     * @return true if the shop had one left, which is now set aside for the hunter.
+     */
+    public boolean take(Item item) {
+        synchronized (lock) {
+            if (stock[item.ordinal()] == 0) {
+                return false;
+            }
+            stock[item.ordinal()]--;
+            return true;
+        }
+    }
+
+    /**
+     * @param item An item sold to the shop, or set aside for a purchase that fell through.
+     */
+    public void restock(Item item) {
+        synchronized (lock) {
+            stock[item.ordinal()]++;
+        }
+    }
+
+    public int getStock(Item item) {
+        synchronized (lock) {
+            return stock[item.ordinal()];
+        }
+    }
+
+    /**
+     * @return The treasures nobody has dug up yet, as a bitmask with one bit per Treasure.
+     */
+    public int getBuried() {
+        synchronized (lock) {
+            return buried;
+        }
+    }
+
+    public int getDigSpots() {
+        synchronized (lock) {
+            return digSpots;
+        }
+    }
+
+    /**
+     * @return How many hunters are in town.
+     */
+    public int getPresentCount() {
+        synchronized (lock) {
+            return presentCount;
+        }
+    }
+}
@@ -1,49 +1,52 @@
-import java.util.Scanner;
-
 /**
  * The Shop class controls the cost of the items in the Treasure Hunt game. <p>
  * The Shop class also acts as a go between for the Hunter's buyItem() method. <p>
+ * In a shared World the shop's stock is limited: each item bought comes out of the SharedTown
+ * of the town the shop is entered from, and each item sold goes back into it. <p>
  * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
  */
 
 public class Shop {
-    // constants
-    private static final int WATER_COST = 2;
-    private static final int ROPE_COST = 4;
-    private static final int MACHETE_COST = 6;
-    private static final int HORSE_COST = 12;
-    private static final int BOAT_COST = 20;
-    private static final int BOOTS_COST = 10;
-    private static final int SHOVEL_COST = 8;
-    private static final int SWORD_COST = 0;
-
     // static variables
-    private static final Scanner SCANNER = new Scanner(System.in);
+    private static final Metrics METRICS = Metrics.GLOBAL;
 
     // instance variables
+    private ItemCatalog catalog;
     private double markdown;
+    private int[] buyBackPrices;
+    private Policy policy;
+    private Renderer out;
     private Hunter customer;
-    private TreasureHunter treasureGuy;
+    private SharedTown commons;
 
-    private String inventory;
+    private long stock; // one bit per Item for sale here
 
     /**
-     * The Shop constructor takes in a markdown value and leaves customer null until one enters the shop.
+     * The Shop constructor takes in a markdown value and leaves customer null until one enters the shop.<p>
+     * The prices and listings come from the shared ItemCatalog, so a Shop only holds references and its stock mask.
      *
      * @param markdown Percentage of markdown for selling items in decimal format.
+     * @param policy Answers the shopkeeper's questions for the customer.
+     * @param out Where the shopkeeper's lines are written.
+     */
+    public Shop(double markdown, Policy policy, Renderer out) {
+        this(ItemCatalog.STANDARD, markdown, policy, out);
+    }
+
+    /**
+     * @param catalog The prices and listings, from the game's Rules.
+     * @param markdown Percentage of markdown for selling items in decimal format.
+     * @param policy Answers the shopkeeper's questions for the customer.
+     * @param out Where the shopkeeper's lines are written.
      */
-    public Shop(double markdown) {
+    public Shop(ItemCatalog catalog, double markdown, Policy policy, Renderer out) {
+        this.catalog = catalog;
         this.markdown = markdown;
+        this.policy = policy;
+        this.out = out;
         customer = null; // is set in the enter method
-        treasureGuy = new TreasureHunter();
-        inventory = "";
-        inventory += "\033[0;35m" +  "Water: " + "\033[0m" + WATER_COST +" gold\n";
-        inventory += "\033[0;35m" +  "Rope: " + "\033[0m"  + ROPE_COST  +" gold\n";
-        inventory += "\033[0;35m" +  "Machete: " + "\033[0m" + MACHETE_COST +" gold\n";
-        inventory += "\033[0;35m" + "Horse: "  + "\033[0m" + HORSE_COST  +" gold\n";
-        inventory += "\033[0;35m" +  "Boat: " + "\033[0m"  + BOAT_COST + " gold\n" ;
-        inventory += "\033[0;35m" +  "Boots: " + "\033[0m"  + BOOTS_COST + " gold\n" ;
-        inventory += "\033[0;35m" +  "Shovel: " + "\033[0m"  + SHOVEL_COST + " gold\n" ;
+        buyBackPrices = catalog.buyBackPrices(markdown);
+        stock = catalog.getStandardStock();
     }
 
     /**
@@ -53,54 +56,78 @@ public class Shop {
      * @param buyOrSell String that determines if hunter is "B"uying or "S"elling
      */
     public void enter(Hunter hunter, String buyOrSell) {
+        enter(hunter, buyOrSell, null);
+    }
+
+    /**
+     * @param hunter the Hunter entering the shop
+     * @param buyOrSell String that determines if hunter is "B"uying or "S"elling
+     * @param commons The stock of the town in a shared World, or null when the stock never runs out.
+     */
+    public void enter(Hunter hunter, String buyOrSell, SharedTown commons) {
         customer = hunter;
+        this.commons = commons;
 
         if (buyOrSell.equals("b")) {
-            System.out.println("Welcome to the shop! We have the finest wares in town.");
-            System.out.println("Currently we have the following items:");
-            System.out.println(inventory());
-            System.out.print("What're you lookin' to buy? ");
-            String item = SCANNER.nextLine().toLowerCase();
+            out.println("Welcome to the shop! We have the finest wares in town.");
+            out.println("Currently we have the following items:");
+            out.println(inventory());
+            out.print("What're you lookin' to buy? ");
+            waitForCustomer();
+            String item = policy.chooseItem(true);
             int cost = checkMarketPrice(item, true);
-            if (cost == 0 && customer.hasItemInKit("sword")) {
-                System.out.println("We ain't got none of those.");
+            if (cost == 0 && customer.hasItemInKit(Item.SWORD)) {
+                out.println("We ain't got none of those.");
+            } else if (cost != 0 && commons != null && commons.getStock(Item.find(item)) == 0) {
+                out.println("Sold out! Try the next town.");
             } else {
                 if(cost == 1){
                     cost-= 1;
                 }
-                String option = "";
-                if(hunter.hasItemInKit("sword")){
-                    System.out.println("\033[0;31m" + "The sword intimidates the shopkeeper and he gives you the item freely" + "\033[0m");
+                boolean option;
+                if(hunter.hasItemInKit(Item.SWORD)){
+                    out.println(Colors.RED_CODE, "The sword intimidates the shopkeeper and he gives you the item freely");
                     hunter.changeGold(cost);
-                    option = "y";
+                    option = true;
                 }
                 else {
-                    System.out.print("It'll cost you " + cost + " gold. Buy it (y/n)? ");
-                    option = SCANNER.nextLine().toLowerCase();
+                    out.print("It'll cost you " + cost + " gold. Buy it (y/n)? ");
+                    waitForCustomer();
+                    option = policy.confirm(item, cost, true);
                 }
 
-                if (option.equals("y")) {
+                if (option) {
                     buyItem(item);
                 }
             }
         } else {
-            System.out.println("What're you lookin' to sell? ");
-            System.out.print("You currently have the following items: " + customer.getInventory());
-            String item = SCANNER.nextLine().toLowerCase();
+            out.println("What're you lookin' to sell? ");
+            out.print("You currently have the following items: " + customer.getInventory());
+            waitForCustomer();
+            String item = policy.chooseItem(false);
             int cost = checkMarketPrice(item, false);
             if (cost == 0) {
-                System.out.println("We don't want none of those.");
+                out.println("We don't want none of those.");
             } else {
-                System.out.print("It'll get you " + cost + " gold. Sell it (y/n)? ");
-                String option = SCANNER.nextLine().toLowerCase();
+                out.print("It'll get you " + cost + " gold. Sell it (y/n)? ");
+                waitForCustomer();
 
-                if (option.equals("y")) {
+                if (policy.confirm(item, cost, false)) {
                     sellItem(item);
                 }
             }
         }
     }
 
+    /**
+     * Shows the shopkeeper's question, unless the customer has already given the answer.
+     */
+    private void waitForCustomer() {
+        if (!policy.hasPendingInput()) {
+            out.flush();
+        }
+    }
+
     /**
      * A method that returns a string showing the items available in the shop
      * (all shops sell the same items).
@@ -108,11 +135,16 @@ public class Shop {
      * @return the string representing the shop's items available for purchase and their prices.
      */
     public String inventory() {
-        return inventory;
+        return catalog.inventory(stock);
     }
 
-    public void addToShop(String item){
-        inventory += item;
+    /**
+     * Puts an item on sale in this shop only, on top of the catalog's standard stock.
+     *
+     * @param item The item to add.
+     */
+    public void addToShop(Item item){
+        stock |= item.bit();
     }
 
     /**
@@ -121,12 +153,25 @@ public class Shop {
      * @param item The item being bought.
      */
     public void buyItem(String item) {
+        long start = System.nanoTime();
         int costOfItem = checkMarketPrice(item, true);
-        if (customer.buyItem(item, costOfItem)) {
-            System.out.println("Ye' got yerself a " + "\033[0;35m" + item + "\033[0m" + ". Come again soon.");
+        Item found = Item.find(item);
+        if (commons != null && found != null && !commons.take(found)) {
+            // somebody else bought the last one while the customer made up their mind
+            METRICS.count(Metrics.Counter.PURCHASES_REFUSED);
+            out.println("Sold out! Try the next town.");
+        } else if (customer.buyItem(item, costOfItem)) {
+            customer.record(GameEvent.ITEM_BOUGHT, found.ordinal(), costOfItem);
+            METRICS.count(Metrics.Counter.ITEMS_BOUGHT);
+            out.println("Ye' got yerself a " + Colors.PURPLE + item + Colors.RESET + ". Come again soon.");
         } else {
-            System.out.println("Hmm, either you don't have enough gold or you've already got one of those!");
+            if (commons != null && found != null) {
+                commons.restock(found);
+            }
+            METRICS.count(Metrics.Counter.PURCHASES_REFUSED);
+            out.println("Hmm, either you don't have enough gold or you've already got one of those!");
         }
+        METRICS.time(Metrics.Action.BUY, start);
     }
 
     /**
@@ -135,20 +180,25 @@ public class Shop {
      * @param item The item being sold.
      */
     public void sellItem(String item) {
+        long start = System.nanoTime();
         int buyBackPrice = checkMarketPrice(item, false);
         if (customer.sellItem(item, buyBackPrice)) {
-            System.out.println("Pleasure doin' business with you.");
+            if (commons != null) {
+                commons.restock(Item.find(item));
+            }
+            customer.record(GameEvent.ITEM_SOLD, Item.find(item).ordinal(), buyBackPrice);
+            METRICS.count(Metrics.Counter.ITEMS_SOLD);
+            out.println("Pleasure doin' business with you.");
         } else {
-            System.out.println("Stop stringin' me along!");
+            METRICS.count(Metrics.Counter.SALES_REFUSED);
+            out.println("Stop stringin' me along!");
         }
+        METRICS.time(Metrics.Action.SELL, start);
     }
 
     public boolean checkItemExist(String item){
-        boolean exist = false;
-        if(inventory.contains(item)){
-            exist = true;
-        }
-        return exist;
+        Item found = Item.find(item);
+        return found != null && (stock & found.bit()) != 0;
     }
 
     /**
@@ -167,44 +217,38 @@ public class Shop {
     }
 
     /**
-     * Checks the item entered against the costs listed in the static variables.
+     * Looks the item entered up in the catalog.
      *
      * @param item The item being checked for cost.
-     * @return The cost of the item or 0 if the item is not found.
+     * @return The cost of the item or 0 if the item is not in stock here.
      */
     public int getCostOfItem(String item) {
-        int cost = 0;
-        if (item.equals("water")) {
-            cost = WATER_COST;
-        } else if (item.equals("rope")) {
-            cost = ROPE_COST;
-        } else if (item.equals("machete")) {
-            cost = MACHETE_COST;
-        } else if (item.equals("horse")) {
-            cost = HORSE_COST;
-        } else if (item.equals("boat")) {
-            cost = BOAT_COST;
-        } else if (item.equals("boots")) {
-            cost = BOOTS_COST;
-        } else if (item.equals("shovel")) {
-            cost = SHOVEL_COST;
-        } else if (item.equals("sword") && inventory.contains("Sword")) {
-            cost = SWORD_COST + 1;
-        }
-        else{
-            cost = 0;
-        }
-        return cost;
+        Item found = Item.find(item);
+        return found == null ? 0 : getCostOfItem(found);
     }
 
     /**
-     * Checks the cost of an item and applies the markdown.
+     * Looks up the cost of an item with the markdown already applied.
      *
      * @param item The item being sold.
      * @return The sell price of the item.
      */
     public int getBuyBackCost(String item) {
-        int cost = (int) (getCostOfItem(item) * markdown);
-        return cost;
+        Item found = Item.find(item);
+        return found == null ? 0 : getBuyBackCost(found);
+    }
+
+    public int getCostOfItem(Item item) {
+        if ((stock & item.bit()) == 0) {
+            return 0;
+        }
+        return catalog.buyPrice(item);
+    }
+
+    public int getBuyBackCost(Item item) {
+        if ((stock & item.bit()) == 0) {
+            return 0;
+        }
+        return buyBackPrices[item.ordinal()];
     }
 }
\ No newline at end of file
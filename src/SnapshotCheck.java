@@ -0,0 +1,259 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Checks that session snapshots restore to the game that was saved, in every version of the format.<p>
+ * Each game is played by a RandomPolicy for a random number of turns, with and without a World, then
+ * saved. The snapshot is restored and saved again and must come out the same, and so must its rewrites
+ * in the version 1 and 2 layouts. Names and modes too long for the format must be asked for again, and
+ * snapshots with a corrupt name length or cut short must be refused. Exits with status 1 if any check fails.
+ */
+
+public class SnapshotCheck {
+    // constants
+    private static final String[] MODES = {"e", "n", "h", "s", "t"};
+    private static final int MAX_TURNS = 60;
+    private static final int HEADER = 5; // magic, version, flags and mode length
+    private static final int VERSION_AT = 2;
+
+    // static variables
+    private static int checked;
+    private static int failures;
+
+    /**
+     * Usage: java SnapshotCheck [games] [seed]
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        SplittableRandom seeds = new SplittableRandom(seed);
+        World world = new World(seed, 1L << 40);
+        for (int i = 0; i < games; i++) {
+            String mode = MODES[i % MODES.length];
+            checkVersions(mode, seeds.split(), null);
+            checkVersions(mode, seeds.split(), world);
+        }
+        checkLongInput();
+        checkCorrupt();
+        System.out.println(checked + " snapshots checked, " + failures + " failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Saves a game part way through, then restores it from each version of its snapshot.
+     */
+    private static void checkVersions(String mode, SplittableRandom rng, World world) {
+        TreasureHunter game = new TreasureHunter(new StoppingPolicy(mode, 1 + rng.nextInt(MAX_TURNS), rng.split()),
+                Renderer.headless(), rng.split());
+        if (world != null) {
+            game.setWorld(world);
+        }
+        play(game);
+        if (!game.isInProgress()) {
+            // broke before it could be saved
+            return;
+        }
+        Parsed saved = new Parsed(game.snapshot());
+        // resuming plays one more turn before it is saved again
+        Parsed expected = saved.nextTurn();
+        check(mode + " v3", expected, resume(saved.bytes, mode, world));
+        check(mode + " v2", expected.withoutTowns(), resume(saved.version2(), mode, world));
+        if (world == null) {
+            check(mode + " v1", expected, resume(saved.version1(), mode, null));
+        }
+    }
+
+    private static void checkLongInput() {
+        String longest = "\u20AC".repeat(Hunter.MAX_NAME_LENGTH);
+        InputPolicy typed = new InputPolicy(new ScriptedInput("x".repeat(Hunter.MAX_NAME_LENGTH + 1), longest,
+                "n".repeat(300), "n", "x"));
+        TreasureHunter game = new TreasureHunter(typed, Renderer.headless(), new SplittableRandom(1));
+        game.play();
+        checked++;
+        if (!game.getHunter().getHunterName().equals(longest) || !game.getMode().equals("n")) {
+            fail("long input", "hunter " + game.getHunter().getHunterName().length() + " chars, mode " + game.getMode().length());
+            return;
+        }
+        TreasureHunter restored = TreasureHunter.restore(game.snapshot(), typed, Renderer.headless(), new SplittableRandom(2));
+        if (!restored.getHunter().getHunterName().equals(longest)) {
+            fail("longest name", "restored as " + restored.getHunter().getHunterName().length() + " chars");
+        }
+    }
+
+    private static void checkCorrupt() {
+        TreasureHunter game = new TreasureHunter(new StoppingPolicy("n", 3, new SplittableRandom(3)),
+                Renderer.headless(), new SplittableRandom(4));
+        play(game);
+        byte[] snapshot = game.snapshot();
+        int nameAt = HEADER + (snapshot[HEADER - 1] & 0xFF) + Integer.BYTES;
+        byte[] badName = snapshot.clone();
+        badName[nameAt] = (byte) 0xFF;
+        badName[nameAt + 1] = (byte) 0xFF;
+        refused("corrupt name length", badName);
+        refused("cut short", Arrays.copyOf(snapshot, snapshot.length / 2));
+    }
+
+    private static void refused(String what, byte[] snapshot) {
+        checked++;
+        try {
+            TreasureHunter.restore(snapshot, new StoppingPolicy("n", 0, new SplittableRandom()), Renderer.headless(),
+                    new SplittableRandom());
+            fail(what, "restored");
+        } catch (IllegalArgumentException e) {
+            // refused, as it should be
+        } catch (RuntimeException e) {
+            fail(what, e.toString());
+        }
+    }
+
+    private static Parsed resume(byte[] snapshot, String mode, World world) {
+        TreasureHunter game = new TreasureHunter(new StoppingPolicy(mode, 0, new SplittableRandom()),
+                Renderer.headless(), new SplittableRandom());
+        if (world != null) {
+            game.setWorld(world);
+        }
+        game.setSavedGame(snapshot);
+        play(game);
+        return new Parsed(game.snapshot());
+    }
+
+    private static void play(TreasureHunter game) {
+        try {
+            game.play();
+        } catch (StoppingPolicy.Stop e) {
+            // the game is left in progress
+        }
+    }
+
+    private static void check(String what, Parsed expected, Parsed actual) {
+        checked++;
+        if (!expected.equals(actual)) {
+            fail(what, "expected " + expected + ", got " + actual);
+        }
+    }
+
+    private static void fail(String what, String why) {
+        failures++;
+        if (failures <= 10) {
+            System.out.println(what + ": " + why);
+        }
+    }
+
+    /**
+     * A RandomPolicy that stops the game in the middle of a turn, once it has made its moves.
+     */
+    private static class StoppingPolicy extends RandomPolicy {
+        private int moves;
+
+        StoppingPolicy(String mode, int moves, SplittableRandom rng) {
+            super(mode, Integer.MAX_VALUE, rng);
+            this.moves = moves;
+        }
+
+        public String nextMove() {
+            if (moves-- == 0) {
+                throw new Stop();
+            }
+            return super.nextMove();
+        }
+
+        @SuppressWarnings("serial")
+        private static class Stop extends RuntimeException {
+            Stop() {
+                super(null, null, false, false);
+            }
+        }
+    }
+
+    /**
+     * A version 3 snapshot taken apart: the towns searched or dug may be written in any order.
+     */
+    private static class Parsed {
+        private final byte[] bytes;
+        private final byte[] game; // everything up to the current town's number
+        private final long townId;
+        private final long[] towns;
+        private final int townAt;
+        private final int countAt;
+
+        Parsed(byte[] bytes) {
+            this.bytes = bytes;
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            countAt = HEADER + (bytes[HEADER - 1] & 0xFF);
+            buffer.position(countAt + Integer.BYTES);
+            int nameLength = buffer.getShort() & 0xFFFF;
+            townAt = buffer.position() + nameLength + Integer.BYTES + 2;
+            buffer.position(townAt + 2);
+            game = Arrays.copyOf(bytes, townAt + 2);
+            townId = buffer.getLong();
+            towns = new long[buffer.getInt()];
+            for (int i = 0; i < towns.length; i++) {
+                towns[i] = buffer.getLong();
+            }
+            Arrays.sort(towns);
+        }
+
+        private Parsed(Parsed parsed, int count, long[] towns) {
+            bytes = parsed.bytes;
+            game = parsed.game.clone();
+            ByteBuffer.wrap(game).putInt(parsed.countAt, count);
+            townId = parsed.townId;
+            this.towns = towns;
+            townAt = parsed.townAt;
+            countAt = parsed.countAt;
+        }
+
+        Parsed nextTurn() {
+            return new Parsed(this, ByteBuffer.wrap(game).getInt(countAt) + 1, towns);
+        }
+
+        Parsed withoutTowns() {
+            return new Parsed(this, ByteBuffer.wrap(game).getInt(countAt), new long[0]);
+        }
+
+        /**
+         * @return The snapshot in the version 2 layout, which had no towns after the current one.
+         */
+        byte[] version2() {
+            byte[] old = Arrays.copyOf(bytes, townAt + 2 + Long.BYTES);
+            old[VERSION_AT] = 2;
+            return old;
+        }
+
+        /**
+         * @return The snapshot in the version 1 layout, which spelled the terrain out and had no town number.
+         */
+        byte[] version1() {
+            Terrain terrain = Terrain.of(bytes[townAt]);
+            byte[] name = terrain.getTerrainName().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer old = ByteBuffer.allocate(townAt + 1 + name.length + 2);
+            old.put(bytes, 0, townAt);
+            old.put((byte) name.length);
+            old.put(name);
+            old.put((byte) 0);
+            old.put(bytes[townAt + 1]);
+            old.put(VERSION_AT, (byte) 1);
+            return old.array();
+        }
+
+        public boolean equals(Object other) {
+            if (!(other instanceof Parsed)) {
+                return false;
+            }
+            Parsed parsed = (Parsed) other;
+            return Arrays.equals(game, parsed.game) && townId == parsed.townId && Arrays.equals(towns, parsed.towns);
+        }
+
+        public int hashCode() {
+            return Arrays.hashCode(game);
+        }
+
+        public String toString() {
+            return Arrays.toString(game) + " town " + townId + " " + Arrays.toString(towns);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A SpectatorFeed broadcasts one game, turn by turn, to any number of watchers.<p>
+ * Instead of the whole menu frame, every turn is published as a small fixed-size record in a ring:
+ * <pre>
+ *   0  long  sequence (-1 while the slot is being written)
+ *   8  int   gold, short kit, byte treasures, byte town (terrain index, 0x80 if tough)
+ *  16  int   outcome gold, int turn
+ *  24  byte  changed (GOLD, KIT, TREASURES, TOWN), byte outcome kind,
+ *            byte outcome subject (item + 1, or treasure + 1 with 0x80), byte result (ordinal + 1), 4 bytes unused
+ * </pre>
+ * There is one writer, the game's own thread, and it never waits for anybody: it marks the slot busy,
+ * fills it in, stamps it with its sequence and then moves the published sequence on. Each watcher reads
+ * through its own Subscriber, which checks the stamp before and after reading a slot. A watcher that
+ * falls a whole ring behind, or finds its slot overwritten while reading it, skips ahead to the latest
+ * record, which is sent as a keyframe with every field; otherwise only the fields that changed are sent.<p>
+ * Watchers need not poll: the feed's listener is told after every record and when the feed closes,
+ * so whoever sends the records on can wait until there is something to send.
+ */
+
+public class SpectatorFeed {
+    // constants
+    public static final int GOLD = 1;
+    public static final int KIT = 2;
+    public static final int TREASURES = 4;
+    public static final int TOWN = 8;
+    public static final int ALL = GOLD | KIT | TREASURES | TOWN;
+
+    private static final int WORDS = 4;
+    private static final long BUSY = -1;
+    private static final int TOUGH = 0x80;
+    private static final int TREASURE_SUBJECT = 0x80;
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final Outcome.Kind[] KINDS = Outcome.Kind.values();
+    private static final GameResult[] RESULTS = GameResult.values();
+    private static final Treasure[] TREASURE_LIST = Treasure.values();
+
+    // instance variables
+    private final long[] ring;
+    private final int mask;
+    private final AtomicLong published;
+    private volatile boolean closed;
+    private volatile String name;
+    private Runnable listener;
+
+    // the writer's view of the last record, to tell what changed
+    private long sequence;
+    private long lastState;
+
+    /**
+     * @param capacity How many turns the ring holds; rounded up to a power of two.
+     */
+    public SpectatorFeed(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+        ring = new long[slots * WORDS];
+        mask = slots - 1;
+        published = new AtomicLong(-1);
+        sequence = -1;
+        for (int slot = 0; slot < slots; slot++) {
+            ring[slot * WORDS] = BUSY;
+        }
+    }
+
+    /**
+     * @param listener Run on the game's thread after every record is published and when the feed
+     *                 closes; it must not block. Set it before the game starts.
+     */
+    public void setListener(Runnable listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Starts the broadcast once the hunter has a name.
+     *
+     * @param hunterName The name of the hunter being watched.
+     */
+    public void open(String hunterName) {
+        name = hunterName;
+        closed = false;
+    }
+
+    /**
+     * Ends the broadcast: watchers leave once they have read the rest.
+     */
+    public void close() {
+        closed = true;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return The name of the hunter being watched, or null until the broadcast starts.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Publishes the state after a turn. Only the game's thread may call this.
+     *
+     * @param turn The turn count.
+     * @param hunter The hunter.
+     * @param town The town the hunter is in.
+     * @param outcome What the turn's action turned up.
+     * @param result How the game ended, or null while it goes on.
+     */
+    public void publish(int turn, Hunter hunter, Town town, Outcome outcome, GameResult result) {
+        int townCode = town.getTerrain().getIndex() | (town.isToughTown() ? TOUGH : 0);
+        long state = (hunter.getGold() & 0xFFFFFFFFL) | (hunter.getKit() & 0xFFFF) << 32
+                | (long) hunter.getTreasures() << 48 | (long) townCode << 56;
+        int changed = sequence < 0 ? ALL : changes(lastState ^ state);
+        if (outcome.leftTown()) {
+            changed |= TOWN;
+        }
+        int subject = 0;
+        if (outcome.getItem() != null) {
+            subject = outcome.getItem().ordinal() + 1;
+        } else if (outcome.getTreasure() != null) {
+            subject = (outcome.getTreasure().ordinal() + 1) | TREASURE_SUBJECT;
+        }
+        long event = (outcome.getGold() & 0xFFFFFFFFL) | (long) turn << 32;
+        long action = changed | outcome.getKind().ordinal() << 8 | subject << 16
+                | (long) (result == null ? 0 : result.ordinal() + 1) << 24;
+
+        long next = sequence + 1;
+        int slot = (int) (next & mask) * WORDS;
+        SLOT.setOpaque(ring, slot, BUSY);
+        VarHandle.storeStoreFence();
+        ring[slot + 1] = state;
+        ring[slot + 2] = event;
+        ring[slot + 3] = action;
+        SLOT.setRelease(ring, slot, next);
+        published.lazySet(next);
+        sequence = next;
+        lastState = state;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    private static int changes(long difference) {
+        int changed = 0;
+        if ((difference & 0xFFFFFFFFL) != 0) {
+            changed |= GOLD;
+        }
+        if ((difference >>> 32 & 0xFFFF) != 0) {
+            changed |= KIT;
+        }
+        if ((difference >>> 48 & 0xFF) != 0) {
+            changed |= TREASURES;
+        }
+        if (difference >>> 56 != 0) {
+            changed |= TOWN;
+        }
+        return changed;
+    }
+
+    /**
+     * @return A new watcher, starting from the latest record with a keyframe.
+     */
+    public Subscriber subscribe() {
+        return new Subscriber(Math.max(0, published.get()));
+    }
+
+    /**
+     * One watcher's place in the feed. A Subscriber is read by one thread; the feed can have any number.
+     */
+    public class Subscriber {
+        // instance variables
+        private long next;
+        private boolean keyframe;
+        private long skipped;
+        private Delta delta;
+
+        private Subscriber(long next) {
+            this.next = next;
+            keyframe = true;
+            delta = new Delta();
+        }
+
+        /**
+         * @return true if there are records this watcher has not read.
+         */
+        public boolean hasNext() {
+            return published.get() >= next;
+        }
+
+        /**
+         * @return How many records were skipped over because this watcher fell behind.
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Hands every record published since the last poll to the visitor, oldest first.<p>
+         * The Delta is reused from one record to the next, so the visitor must not keep it.
+         *
+         * @param visitor Told each record.
+         * @return How many records were read.
+         */
+        public int poll(Consumer<Delta> visitor) {
+            return poll(visitor, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Hands the records published since the last poll to the visitor, oldest first, up to a limit.
+         *
+         * @param visitor Told each record.
+         * @param max The most records to read.
+         * @return How many records were read.
+         */
+        public int poll(Consumer<Delta> visitor, int max) {
+            int read = 0;
+            long latest = published.get();
+            while (next <= latest && read < max) {
+                if (latest - next > mask) {
+                    skipTo(latest);
+                }
+                int slot = (int) (next & mask) * WORDS;
+                long stamp = (long) SLOT.getAcquire(ring, slot);
+                long state = ring[slot + 1];
+                long event = ring[slot + 2];
+                long action = ring[slot + 3];
+                VarHandle.loadLoadFence();
+                if (stamp != next || (long) SLOT.getOpaque(ring, slot) != next) {
+                    // the writer lapped us while we were reading
+                    latest = published.get();
+                    skipTo(latest);
+                    continue;
+                }
+                delta.set(next, state, event, action, keyframe);
+                keyframe = false;
+                next++;
+                read++;
+                visitor.accept(delta);
+            }
+            return read;
+        }
+
+        private void skipTo(long latest) {
+            skipped += latest - next;
+            next = latest;
+            keyframe = true;
+        }
+    }
+
+    /**
+     * The state after one turn, and what changed in it, decoded on demand from a record.
+     */
+    public static class Delta {
+        // instance variables
+        private long sequence;
+        private long state;
+        private long event;
+        private long action;
+        private boolean keyframe;
+
+        private void set(long sequence, long state, long event, long action, boolean keyframe) {
+            this.sequence = sequence;
+            this.state = state;
+            this.event = event;
+            this.action = action;
+            this.keyframe = keyframe;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * @return true if the watcher is new or skipped ahead, so every field counts as changed.
+         */
+        public boolean isKeyframe() {
+            return keyframe;
+        }
+
+        /**
+         * @return The fields that changed since the last record, as GOLD, KIT, TREASURES and TOWN bits.
+         */
+        public int getChanged() {
+            return keyframe ? ALL : (int) (action & ALL);
+        }
+
+        public int getTurn() {
+            return (int) (event >>> 32);
+        }
+
+        public int getGold() {
+            return (int) state;
+        }
+
+        /**
+         * @return The kit as a bitmask with one bit per Item.
+         */
+        public long getKit() {
+            return state >>> 32 & 0xFFFF;
+        }
+
+        /**
+         * @return The treasures found as a bitmask with one bit per Treasure.
+         */
+        public int getTreasures() {
+            return (int) (state >>> 48 & 0xFF);
+        }
+
+        public Terrain getTerrain() {
+            return Terrain.of((int) (state >>> 56 & ~TOUGH & 0xFF));
+        }
+
+        public boolean isToughTown() {
+            return (state >>> 56 & TOUGH) != 0;
+        }
+
+        public Outcome getOutcome() {
+            Outcome.Kind kind = KINDS[(int) (action >>> 8 & 0xFF)];
+            int subject = (int) (action >>> 16 & 0xFF);
+            if (subject == 0) {
+                return Outcome.of(kind, (int) event);
+            } else if ((subject & TREASURE_SUBJECT) != 0) {
+                return Outcome.of(kind, TREASURE_LIST[(subject & ~TREASURE_SUBJECT) - 1]);
+            }
+            return Outcome.of(kind, Item.of(subject - 1));
+        }
+
+        /**
+         * @return How the game ended, or null while it goes on.
+         */
+        public GameResult getResult() {
+            int result = (int) (action >>> 24 & 0xFF);
+            return result == 0 ? null : RESULTS[result - 1];
+        }
+
+        /**
+         * Writes the record as one short line with only the fields that changed.
+         *
+         * @param line Where the text goes.
+         */
+        public void appendTo(StringBuilder line) {
+            int changed = getChanged();
+            line.append("turn ").append(getTurn());
+            if ((changed & GOLD) != 0) {
+                line.append(" | gold ").append(getGold());
+            }
+            if ((changed & KIT) != 0) {
+                line.append(" | kit");
+                for (int i = 0; i < Item.count(); i++) {
+                    Item item = Item.of(i);
+                    if ((getKit() & item.bit()) != 0) {
+                        line.append(' ').append(item.getItemName());
+                    }
+                }
+            }
+            if ((changed & TREASURES) != 0) {
+                line.append(" | treasures");
+                for (Treasure treasure : TREASURE_LIST) {
+                    if ((getTreasures() & treasure.bit()) != 0) {
+                        line.append(' ').append(treasure.getTreasureName());
+                    }
+                }
+            }
+            if ((changed & TOWN) != 0) {
+                line.append(" | ").append(getTerrain().getTerrainName()).append(isToughTown() ? ", tough" : ", sleepy");
+            }
+            Outcome outcome = getOutcome();
+            if (outcome.getKind() != Outcome.Kind.NOTHING) {
+                line.append(" | ").append(outcome);
+            }
+            if (getResult() != null) {
+                line.append(" | ").append(getResult().name().toLowerCase());
+            }
+            line.append('\n');
+        }
+    }
+}
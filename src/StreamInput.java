@@ -0,0 +1,153 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A StreamInput reads lines from a byte stream: the console, a recorded session file or a socket.<p>
+ * It splits lines itself on '\n' (dropping a trailing '\r') straight out of its own read buffer,
+ * instead of going through Scanner's regular expressions, so replaying recorded sessions from
+ * files runs at CPU speed. The buffer is only allocated on the first read.<p>
+ * A line longer than the maximum line length is not read at all: nextLine() throws, so a client
+ * that never sends a newline cannot make the line grow without end.<p>
+ * At the end of the stream nextLine() returns null, unless the end is a hang-up: a remote player
+ * whose connection closes has not finished typing, so it throws instead, as any failed read does.
+ */
+
+public class StreamInput implements InputSource {
+    // constants
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_LINE_LENGTH = 1 << 20;
+
+    // instance variables
+    private InputStream in;
+    private int bufferSize;
+    private int maxLineLength;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private byte[] line;
+    private boolean ended;
+    private boolean endIsHangUp;
+
+    /**
+     * @param in The stream to read; it is not closed by this class.
+     */
+    public StreamInput(InputStream in) {
+        this(in, BUFFER_SIZE);
+    }
+
+    /**
+     * @param in The stream to read; it is not closed by this class.
+     * @param bufferSize The size of the read buffer; typed input only needs a small one.
+     */
+    public StreamInput(InputStream in, int bufferSize) {
+        this(in, bufferSize, MAX_LINE_LENGTH);
+    }
+
+    /**
+     * @param in The stream to read; it is not closed by this class.
+     * @param bufferSize The size of the read buffer; typed input only needs a small one.
+     * @param maxLineLength The longest line, in bytes, that may be read.
+     */
+    public StreamInput(InputStream in, int bufferSize, int maxLineLength) {
+        this.in = in;
+        this.bufferSize = bufferSize;
+        this.maxLineLength = maxLineLength;
+        position = 0;
+        limit = 0;
+        ended = false;
+        endIsHangUp = false;
+    }
+
+    /**
+     * @param endIsHangUp Whether the end of the stream means the player was cut off, not that they are done.
+     */
+    public void setEndIsHangUp(boolean endIsHangUp) {
+        this.endIsHangUp = endIsHangUp;
+    }
+
+    /**
+     * @throws UncheckedIOException If the line is longer than the maximum line length, or the stream
+     *                              ends and the end is a hang-up.
+     */
+    public String nextLine() {
+        if (buffer == null) {
+            buffer = new byte[bufferSize];
+        }
+        int lineLength = 0;
+        while (true) {
+            if (position == limit && !fill()) {
+                if (endIsHangUp) {
+                    throw new UncheckedIOException(new EOFException("the connection closed"));
+                }
+                // the last line may not end with a newline
+                return lineLength == 0 ? null : decode(line, 0, lineLength);
+            }
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            if (position < limit) {
+                // found the end of the line
+                String text;
+                if (lineLength == 0) {
+                    checkLength(position - start);
+                    text = decode(buffer, start, position - start);
+                } else {
+                    lineLength = append(lineLength, start, position - start);
+                    text = decode(line, 0, lineLength);
+                }
+                position++;
+                return text;
+            }
+            // the line carries on past the end of the buffer
+            lineLength = append(lineLength, start, position - start);
+        }
+    }
+
+    private boolean fill() {
+        if (ended) {
+            return false;
+        }
+        try {
+            int read = in.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                ended = true;
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int append(int lineLength, int start, int length) {
+        checkLength(lineLength + length);
+        if (line == null || lineLength + length > line.length) {
+            byte[] bigger = new byte[Math.min(maxLineLength, Math.max(bufferSize, (lineLength + length) * 2))];
+            if (line != null) {
+                System.arraycopy(line, 0, bigger, 0, lineLength);
+            }
+            line = bigger;
+        }
+        System.arraycopy(buffer, start, line, lineLength, length);
+        return lineLength + length;
+    }
+
+    private void checkLength(int lineLength) {
+        if (lineLength > maxLineLength) {
+            throw new UncheckedIOException(new IOException("line longer than " + maxLineLength + " bytes"));
+        }
+    }
+
+    private static String decode(byte[] bytes, int start, int length) {
+        if (length > 0 && bytes[start + length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, start, length, StandardCharsets.UTF_8);
+    }
+}
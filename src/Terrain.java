@@ -1,22 +1,61 @@
 /**
- * The Terrain class is designed to represent the zones between the towns in the Treasure Hunter game.
+ * The Terrain class is designed to represent the zones between the towns in the Treasure Hunter game.<p>
+ * There are only six kinds of terrain and a Terrain never changes, so every town shares one of the
+ * six instances below instead of creating its own.
  * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
  */
 
 public class Terrain {
+    // constants
+    public static final Terrain MOUNTAINS = new Terrain(0, "Mountains", "Rope");
+    public static final Terrain OCEAN = new Terrain(1, "Ocean", "Boat");
+    public static final Terrain PLAINS = new Terrain(2, "Plains", "Horse");
+    public static final Terrain DESERT = new Terrain(3, "Desert", "Water");
+    public static final Terrain MARSH = new Terrain(4, "Marsh", "boots");
+    public static final Terrain JUNGLE = new Terrain(5, "Jungle", "Machete");
+
+    private static final Terrain[] ALL = {MOUNTAINS, OCEAN, PLAINS, DESERT, MARSH, JUNGLE};
+
     // instance variables
+    private int index;
     private String terrainName;
     private String neededItem;
+    private Item item;
 
     /**
      * Sets the class member variables
      *
+     * @param index The terrain's position in ALL.
      * @param name The name of the zone.
      * @param item The item needed in order to cross the zone.
      */
-    public Terrain(String name, String item) {
+    private Terrain(int index, String name, String item) {
+        this.index = index;
         terrainName = name;
         neededItem = item.toLowerCase();
+        this.item = Item.find(neededItem);
+    }
+
+    /**
+     * @param index A number from 0 to count() - 1.
+     * @return The shared instance of that kind of terrain.
+     */
+    public static Terrain of(int index) {
+        return ALL[index];
+    }
+
+    /**
+     * @return How many kinds of terrain there are.
+     */
+    public static int count() {
+        return ALL.length;
+    }
+
+    /**
+     * @return The terrain's number, as taken by of().
+     */
+    public int getIndex() {
+        return index;
     }
 
     // accessors
@@ -28,6 +67,10 @@ public class Terrain {
         return neededItem;
     }
 
+    public Item getItem() {
+        return item;
+    }
+
     /**
      * Guards against a hunter crossing the zone without the proper item.
      * Searches the hunter's inventory for the proper item and determines whether the hunter can cross.
@@ -36,7 +79,7 @@ public class Terrain {
      * @return true if the Hunter has the proper item.
      */
     public boolean canCrossTerrain(Hunter hunter) {
-        if (hunter.hasItemInKit(neededItem)) {
+        if (hunter.hasItemInKit(item)) {
             return true;
         }
         return false;
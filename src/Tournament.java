@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The Tournament plays every bot in every mode and compares how well they do.<p>
+ * Each bot and mode gets its own HeadlessEngine, but all of them are forked onto one shared
+ * ForkJoinPool at once, so the cores stay busy until the last game of the slowest pairing.
+ * Every pairing in a mode uses the same seed, so the bots face the same towns and dice and the
+ * differences between them are not just luck.<p>
+ * Win rate, mean turns and gold are printed with 95% confidence intervals, along with the
+ * 10th, 50th and 90th percentiles of the gold the games ended with. After them come the 50th, 90th
+ * and 99th percentiles of the GameStats of each mode, with all the bots of the mode added together.
+ */
+
+public class Tournament {
+    // constants
+    private static final String[] MODES = {"e", "n", "h", "s"};
+
+    /**
+     * @return The bots that take part, by name.
+     */
+    public static Map<String, PolicyFactory> bots() {
+        Map<String, PolicyFactory> bots = new LinkedHashMap<>();
+        bots.put("random", RandomPolicy::new);
+        bots.put("digger", (mode, maxTurns, rng) -> new DiggerPolicy(mode, maxTurns));
+        bots.put("brawler", (mode, maxTurns, rng) -> new BrawlerPolicy(mode, maxTurns));
+        return bots;
+    }
+
+    /**
+     * Usage: java Tournament [gamesPerPairing] [maxTurns] [threads] [seed]
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        int maxTurns = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+        Map<String, PolicyFactory> bots = bots();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<String> names = new ArrayList<>();
+        List<RecursiveTask<HeadlessEngine.Tally>> tasks = new ArrayList<>();
+        long start = System.nanoTime();
+        for (String mode : MODES) {
+            for (Map.Entry<String, PolicyFactory> bot : bots.entrySet()) {
+                HeadlessEngine engine = new HeadlessEngine(bot.getValue(), mode, maxTurns, seed, pool);
+                names.add(bot.getKey() + " " + mode);
+                tasks.add(engine.task(games));
+            }
+        }
+        for (RecursiveTask<HeadlessEngine.Tally> task : tasks) {
+            pool.execute(task);
+        }
+
+        System.out.println("seed " + seed + ", " + games + " games per bot and mode");
+        System.out.printf("%-10s %-24s %-18s %-18s %s%n", "bot mode", "win rate (95% CI)", "turns", "gold", "gold p10/p50/p90");
+        Map<String, GameStats> modeStats = new LinkedHashMap<>();
+        for (String mode : MODES) {
+            modeStats.put(mode, new GameStats());
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            HeadlessEngine.Tally tally = tasks.get(i).join();
+            modeStats.get(MODES[i / bots.size()]).add(tally.stats);
+            double[] wins = tally.winRateInterval();
+            System.out.printf("%-10s %6.2f%% [%5.2f, %5.2f]  %7.2f +- %-7.2f %7.2f +- %-7.2f %d/%d/%d%n",
+                    names.get(i), 100 * tally.winRate(), 100 * wins[0], 100 * wins[1],
+                    tally.meanTurns(), tally.turnsMargin(), tally.meanGold(), tally.goldMargin(),
+                    tally.goldQuantile(0.1), tally.goldQuantile(0.5), tally.goldQuantile(0.9));
+        }
+        for (Map.Entry<String, GameStats> stats : modeStats.entrySet()) {
+            System.out.println();
+            System.out.println(stats.getValue().summary(stats.getKey()));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+        System.out.printf("%.3f s on %d threads, %.0f games/sec%n", seconds, threads, games * tasks.size() / seconds);
+    }
+}
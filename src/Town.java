@@ -1,85 +1,233 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
 /**
  * The Town Class is where it all happens.
- * The Town is designed to manage all the things a Hunter can do in town.
+ * The Town is designed to manage all the things a Hunter can do in town.<p>
+ * Every action returns an Outcome saying what happened; the Town never builds any text itself,
+ * that is left to OutcomeFormatter. The outcome of arriving, brawling and leaving is also kept
+ * as the town's latest news, shown with the next menu.<p>
+ * In a shared World the town's treasures, gold and shop stock are a SharedTown that every hunter
+ * there competes for, and brawls can be against the other hunters in town.
  * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
  */
 
 public class Town {
+    // static variables
+    private static final Metrics METRICS = Metrics.GLOBAL;
+
     private TreasureHunter treasureHunter;
     // instance variables
     private Hunter hunter;
     private Shop shop;
     private Terrain terrain;
-    private String printMessage;
+    private Outcome news;
+    private Rules rules;
+    private SharedTown commons;
     private boolean toughTown;
     private boolean easy;
-    private boolean gameEnd = false;
+    private SplittableRandom rng;
+    private SplittableRandom loot;
 
     /**
      * The Town Constructor takes in a shop and the surrounding terrain, but leaves the hunter as null until one arrives.
      *
      * @param shop The town's shoppe.
      * @param toughness The surrounding terrain.
+     * @param easy Whether items never break.
+     * @param rng The game's random source; every roll in this town is drawn from it.
      */
-    public Town(Shop shop, double toughness, boolean easy) {
+    public Town(Shop shop, double toughness, boolean easy, SplittableRandom rng) {
+        this(shop, toughness, easy, rng, Rules.STANDARD);
+    }
+
+    /**
+     * @param shop The town's shoppe.
+     * @param toughness The surrounding terrain.
+     * @param easy Whether items never break.
+     * @param rng The game's random source; every roll in this town is drawn from it.
+     * @param rules The break chance and loot odds.
+     */
+    public Town(Shop shop, double toughness, boolean easy, SplittableRandom rng, Rules rules) {
         this.shop = shop;
+        this.rules = rules;
+        this.rng = rng;
+        this.loot = rng;
         this.terrain = getNewTerrain();
         this.easy = easy;
         // the hunter gets set using the hunterArrives method, which
         // gets called from a client class
         hunter = null;
 
-        printMessage = "";
+        news = Outcome.of(Outcome.Kind.NOTHING);
 
         // higher toughness = more likely to be a tough town
-        toughTown = (Math.random() < toughness);
+        toughTown = (rng.nextDouble() < toughness);
     }
 
-    public String getLatestNews() {
-        return printMessage;
+    /**
+     * Builds a town whose terrain and toughness have already been decided, by a World or a session snapshot.
+     *
+     * @param shop The town's shoppe.
+     * @param terrain The surrounding terrain.
+     * @param toughTown Whether the town is rough.
+     * @param easy Whether items never break.
+     * @param rng The game's random source, for brawls and broken items.
+     * @param loot The random source hunts and digs are rolled from.
+     */
+    public Town(Shop shop, Terrain terrain, boolean toughTown, boolean easy, SplittableRandom rng, SplittableRandom loot) {
+        this(shop, terrain, toughTown, easy, rng, loot, Rules.STANDARD);
+    }
+
+    /**
+     * @param shop The town's shoppe.
+     * @param terrain The surrounding terrain.
+     * @param toughTown Whether the town is rough.
+     * @param easy Whether items never break.
+     * @param rng The game's random source, for brawls and broken items.
+     * @param loot The random source hunts and digs are rolled from.
+     * @param rules The break chance and loot odds.
+     */
+    public Town(Shop shop, Terrain terrain, boolean toughTown, boolean easy, SplittableRandom rng, SplittableRandom loot,
+                Rules rules) {
+        this.shop = shop;
+        this.rules = rules;
+        this.terrain = terrain;
+        this.toughTown = toughTown;
+        this.easy = easy;
+        this.rng = rng;
+        this.loot = loot;
+        hunter = null;
+        news = Outcome.of(Outcome.Kind.NOTHING);
+    }
+
+    /**
+     * Writes the town's terrain and toughness for a session snapshot; the shop is rebuilt from the game's mode.
+     *
+     * @param snapshot The buffer to write to.
+     */
+    public void writeTo(ByteBuffer snapshot) {
+        snapshot.put((byte) terrain.getIndex());
+        snapshot.put((byte) ((toughTown ? 1 : 0) | (easy ? 2 : 0)));
+    }
+
+    /**
+     * Reads back a town written by writeTo().<p>
+     * Version 1 snapshots spelled the terrain out by name and item instead of giving its index.
+     *
+     * @param snapshot The buffer to read from.
+     * @param version The version of the snapshot.
+     * @param shop The town's shoppe.
+     * @param rng The game's random source.
+     * @param rules The game's Rules.
+     * @return The restored town, still waiting for its hunter to arrive.
+     */
+    public static Town readFrom(ByteBuffer snapshot, int version, Shop shop, SplittableRandom rng, Rules rules) {
+        Terrain terrain;
+        if (version == 1) {
+            byte[] name = new byte[snapshot.get() & 0xFF];
+            snapshot.get(name);
+            snapshot.get(); // the item, which the terrain already knows
+            terrain = findTerrain(new String(name, StandardCharsets.UTF_8));
+        } else {
+            terrain = Terrain.of(snapshot.get());
+        }
+        int flags = snapshot.get();
+        return new Town(shop, terrain, (flags & 1) != 0, (flags & 2) != 0, rng, rng, rules);
+    }
+
+    private static Terrain findTerrain(String name) {
+        for (int i = 0; i < Terrain.count(); i++) {
+            if (Terrain.of(i).getTerrainName().equals(name)) {
+                return Terrain.of(i);
+            }
+        }
+        throw new IllegalArgumentException("unknown terrain " + name);
+    }
+
+    /**
+     * @param commons What this town shares with the other hunters in it; set it before the hunter arrives.
+     */
+    public void setCommons(SharedTown commons) {
+        this.commons = commons;
+    }
+
+    public SharedTown getCommons() {
+        return commons;
+    }
+
+    /**
+     * @return What happened when the hunter arrived, last brawled or tried to leave.
+     */
+    public Outcome getLatestNews() {
+        return news;
+    }
+
+    public Shop getShop() {
+        return shop;
+    }
+
+    public Terrain getTerrain() {
+        return terrain;
+    }
+
+    public boolean isToughTown() {
+        return toughTown;
     }
 
     /**
      * Assigns an object to the Hunter in town.
      *
      * @param hunter The arriving Hunter.
+     * @return The welcome, which depends on how rough the town is.
      */
-    public void hunterArrives(Hunter hunter) {
+    public Outcome hunterArrives(Hunter hunter) {
         this.hunter = hunter;
-        printMessage = "Welcome to town, " + hunter.getHunterName() + ".";
+        if (commons != null) {
+            commons.arrive(hunter);
+        }
+        news = Outcome.of(toughTown ? Outcome.Kind.ARRIVED_TOUGH : Outcome.Kind.ARRIVED_SLEEPY);
+        return news;
+    }
 
-        if (toughTown) {
-            printMessage += "\nIt's pretty rough around here, so watch yourself.";
-        } else {
-            printMessage += "\nWe're just a sleepy little town with mild mannered folk.";
+    /**
+     * Takes the hunter out of a shared town without travelling anywhere, when the game is over.
+     */
+    public void hunterLeaves() {
+        if (commons != null) {
+            commons.depart(hunter);
         }
     }
 
     /**
      * Handles the action of the Hunter leaving the town.
      *
-     * @return true if the Hunter was able to leave town.
+     * @return How it went; Outcome.leftTown() is true if the Hunter was able to leave town.
      */
-    public boolean leaveTown() {
-        boolean canLeaveTown = terrain.canCrossTerrain(hunter);
-        if (canLeaveTown) {
-            String item = terrain.getNeededItem();
-            printMessage = "You used your " + "\033[0;35m" + item + " to cross the " + "\033[0;36m" + terrain.getTerrainName() + "\033[0m"+"." + "\033[0m";
+    public Outcome leaveTown() {
+        Item item = terrain.getItem();
+        if (terrain.canCrossTerrain(hunter)) {
+            news = Outcome.of(Outcome.Kind.TOWN_LEFT, item);
+            hunter.record(GameEvent.TOWN_LEFT, item.ordinal(), 0);
+            METRICS.count(Metrics.Counter.TOWNS_LEFT);
+            hunterLeaves();
             if (checkItemBreak()) {
                 hunter.removeItemFromKit(item);
-                if(item.equals("horse") || item.equals("rope")){
-                    printMessage += "\nUnfortunately, you lost your " + "\033[0;35m" + item  + "\033[0m";
-                }
-                else{
-                    printMessage += "\nUnfortunately, your " + "\033[0;35m" + item + " broke." + "\033[0m";
+                METRICS.count(Metrics.Counter.ITEMS_BROKEN);
+                hunter.record(GameEvent.ITEM_BROKE, item.ordinal(), 0);
+                if (item == Item.HORSE || item == Item.ROPE) {
+                    news = Outcome.of(Outcome.Kind.TOWN_LEFT_ITEM_LOST, item);
+                } else {
+                    news = Outcome.of(Outcome.Kind.TOWN_LEFT_ITEM_BROKE, item);
                 }
             }
-
-            return true;
+            return news;
         }
 
-        printMessage = "You can't leave town, " + hunter.getHunterName() + ". You don't have a " + terrain.getNeededItem() + ".";
-        return false;
+        METRICS.count(Metrics.Counter.TOWNS_BLOCKED);
+        news = Outcome.of(Outcome.Kind.CANNOT_LEAVE, item);
+        return news;
     }
 
     /**
@@ -88,109 +236,123 @@ public class Town {
      * @param choice If the user wants to buy or sell items at the shop.
      */
     public void enterShop(String choice) {
-        shop.enter(hunter, choice);
-        printMessage = "";
+        shop.enter(hunter, choice, commons);
+        news = Outcome.of(Outcome.Kind.NOTHING);
     }
 
     /**
      * Gives the hunter a chance to fight for some gold.<p>
      * The chances of finding a fight and winning the gold are based on the toughness of the town.<p>
-     * The tougher the town, the easier it is to find a fight, and the harder it is to win one.
+     * The tougher the town, the easier it is to find a fight, and the harder it is to win one.<p>
+     * In a shared town with other hunters in it, the fight is with one of them: the gold lost goes
+     * to them, and the gold won comes out of their purse, as much of it as they have.
+     *
+     * @return How the brawl went.
      */
-    public void lookForTrouble() {
+    public Outcome lookForTrouble() {
         double noTroubleChance;
         if (toughTown) {
             noTroubleChance = 0.66;
-        } else if (hunter.hasItemInKit("sword")) {
+        } else if (hunter.hasItemInKit(Item.SWORD)) {
             noTroubleChance = 0.33;
         } else {
             noTroubleChance = 0.33;
         }
 
-        if (Math.random() > noTroubleChance) {
-            printMessage = "\033[0;31m" + "You couldn't find any trouble" + "\033[0m";
+        if (rng.nextDouble() > noTroubleChance) {
+            news = Outcome.of(Outcome.Kind.NO_TROUBLE);
+            METRICS.count(Metrics.Counter.NO_TROUBLE);
         } else {
-            int goldDiff = (int) (Math.random() * 10) + 1;
-            if (hunter.hasItemInKit("sword")) {
-                System.out.println("\033[0;31m" + "\nThe brawler, seeing your sword, realizes he picked a losing fight and gives you his gold " + "\033[0m");
+            int goldDiff = rng.nextInt(10) + 1;
+            boolean sword = hunter.hasItemInKit(Item.SWORD);
+            if (sword) {
+                // the brawler gives up as soon as he sees the sword
                 noTroubleChance = -100;
-            }else{
-                printMessage = "\033[0;31m" + "You want trouble, stranger!  You got it!\nOof! Umph! Ow!\n" + "\033[0m";
             }
-            if (Math.random() > noTroubleChance) {
-                printMessage += "\033[0;31m" + "Okay, stranger! You proved yer mettle. Here, take my gold." + "\033[0m";
-                printMessage += "\033[0;31m" + "\nYou won the brawl and receive " + "\033[0;33m" + goldDiff  + " gold." + "\033[0m";
+            Hunter rival = commons == null ? null : commons.rival(hunter, rng);
+            if (rng.nextDouble() > noTroubleChance) {
+                if (rival != null) {
+                    goldDiff = rival.takeGold(goldDiff);
+                }
+                news = Outcome.of(sword ? Outcome.Kind.BRAWL_WON_WITH_SWORD : Outcome.Kind.BRAWL_WON, goldDiff);
                 hunter.changeGold(goldDiff);
+                METRICS.count(Metrics.Counter.BRAWLS_WON);
             } else {
-                printMessage += "\033[0;31m" + "That'll teach you to go lookin' fer trouble in MY town! Now pay up!" + "\033[0m";
-                printMessage += "\033[0;31m" + "\nYou lost the brawl and pay "+ "\033[0;33m" + goldDiff  + " gold." + "\033[0m";
+                news = Outcome.of(Outcome.Kind.BRAWL_LOST, goldDiff);
                 hunter.changeGold(-goldDiff);
-
+                if (rival != null) {
+                    rival.changeGold(goldDiff);
+                }
+                METRICS.count(Metrics.Counter.BRAWLS_LOST);
             }
         }
+        return news;
     }
-    public void hunt() {
-        int rand = (int) (Math.random() * 10) + 1;
-            if (rand == 1) {
-                System.out.println("You have found a crown!");
-                hunter.addTreasure("crown");
-            } else if (rand == 2) {
-                System.out.println("You have found a trophy!");
-                hunter.addTreasure("trophy");
-            } else if (rand == 3) {
-                System.out.println("You have found gem!");
-                hunter.addTreasure("gem");
-            } else {
-                System.out.println("You have found dust!");
-            }
+
+    /**
+     * Searches the town for treasure.
+     *
+     * @return What was found, and whether the hunter already had it.
+     */
+    public Outcome hunt() {
+        METRICS.count(Metrics.Counter.HUNTS);
+        int rand = loot.nextInt(rules.getHuntSides()) + 1;
+        if (rand == 1) {
+            return addTreasure(Treasure.CROWN);
+        } else if (rand == 2) {
+            return addTreasure(Treasure.TROPHY);
+        } else if (rand == 3) {
+            return addTreasure(Treasure.GEM);
+        } else {
+            return Outcome.of(Outcome.Kind.DUST);
+        }
     }
 
-    public boolean end(){
-        if(hunter.getTreasure().contains("gem") && hunter.getTreasure().contains("crown")  && hunter.getTreasure().contains("trophy")){
-            gameEnd = true;
+    private Outcome addTreasure(Treasure treasure) {
+        if (hunter.hasTreasureInKit(treasure)) {
+            return Outcome.of(Outcome.Kind.TREASURE_ALREADY_FOUND, treasure);
+        }
+        if (commons != null && !commons.unearth(treasure)) {
+            return Outcome.of(Outcome.Kind.TREASURE_TAKEN, treasure);
         }
-        return gameEnd;
+        hunter.addTreasure(treasure);
+        METRICS.count(Metrics.Counter.TREASURES_FOUND);
+        return Outcome.of(Outcome.Kind.TREASURE_FOUND, treasure);
     }
 
-    public void dig() {
-        int randGold = (int) (Math.random() * 20) + 1;
-        int randDig = (int) (Math.random() * 2) + 1;
-        if (hunter.hasItemInKit("shovel")) {
-            if (randDig > 1) {
-                System.out.println("You have dug out " + randGold + " gold!");
+    /**
+     * Digs for gold, which needs a shovel.
+     *
+     * @return The gold dug up, if any.
+     */
+    public Outcome dig() {
+        int randGold = loot.nextInt(rules.getDigGold()) + 1;
+        int randDig = loot.nextInt(rules.getDirtOneIn()) + 1;
+        if (hunter.hasItemInKit(Item.SHOVEL)) {
+            METRICS.count(Metrics.Counter.DIGS);
+            // in a shared town the gold runs out once enough hunters have dug here
+            if (randDig > 1 && (commons == null || commons.dig())) {
                 hunter.changeGold(randGold);
-            } else {
-                System.out.println("You dug but only found dirt!");
+                METRICS.add(Metrics.Counter.GOLD_DUG, randGold);
+                return Outcome.of(Outcome.Kind.GOLD_DUG, randGold);
             }
-        } else {
-            System.out.println("You need a shovel!");
+            return Outcome.of(Outcome.Kind.DIRT);
         }
+        METRICS.count(Metrics.Counter.NO_SHOVEL);
+        return Outcome.of(Outcome.Kind.NO_SHOVEL);
     }
 
     public String toString() {
-        return "This nice little town is surrounded by " + "\033[0;36m" + terrain.getTerrainName() + "\033[0m" + ".";
+        return OutcomeFormatter.describe(terrain);
     }
 
     /**
      * Determines the surrounding terrain for a town, and the item needed in order to cross that terrain.
      *
-     * @return A Terrain object.
+     * @return One of the shared Terrain instances.
      */
     private Terrain getNewTerrain() {
-        double rnd =  (int) (Math.random() * 6) + 1;
-        if (rnd == 1) {
-            return new Terrain("Mountains", "Rope");
-        } else if (rnd == 2) {
-            return new Terrain("Ocean", "Boat");
-        } else if (rnd == 3) {
-            return new Terrain("Plains", "Horse");
-        } else if (rnd == 4) {
-            return new Terrain("Desert", "Water");
-        } else if (rnd == 5) {
-            return new Terrain("Marsh","boots");
-        } else {
-            return new Terrain("Jungle", "Machete");
-        }
+        return Terrain.of(rng.nextInt(Terrain.count()));
     }
 
     /**
@@ -199,10 +361,10 @@ public class Town {
      * @return true if the item broke.
      */
     private boolean checkItemBreak() {
-        double rand = Math.random();
+        double rand = rng.nextDouble();
         if(easy){
             rand += 100;
         }
-        return (rand < 0.5);
+        return (rand < rules.getBreakChance());
     }
 }
\ No newline at end of file
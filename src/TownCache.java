@@ -0,0 +1,231 @@
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A TownCache remembers the towns of a World that one hunter has visited, so that going back to a
+ * town finds it as it was left.<p>
+ * The most recently visited towns are kept whole, Town and all, in a least-recently-used map of fixed
+ * size. A town that falls out of it is boiled down to what the World cannot work out again: whether
+ * it has been searched for treasure and dug for gold. That is one long per town in an open-addressing
+ * table, and a town that was neither searched nor dug is not kept at all, since the World rebuilds
+ * it from its number. A long game over thousands of towns therefore costs the recent towns plus a
+ * few bytes per town searched. A town rebuilt from the World rolls any loot it has left from its seed again.<p>
+ * Town numbers must be below 2^61.
+ */
+
+public class TownCache {
+    // constants
+    private static final int SEARCHED = 1;
+    private static final int DUG = 2;
+    private static final int FLAG_BITS = 2;
+    private static final int INITIAL_TABLE = 64;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    // instance variables
+    private World world;
+    private int capacity;
+    private LinkedHashMap<Long, Visit> recent;
+    private long[] remembered; // (town + 1) << FLAG_BITS | flags, 0 for an empty slot
+    private int rememberedCount;
+
+    /**
+     * @param world The world the towns are in.
+     * @param capacity How many towns are kept whole; at least 1.
+     */
+    public TownCache(World world, int capacity) {
+        this.world = world;
+        this.capacity = Math.max(1, capacity);
+        recent = new LinkedHashMap<Long, Visit>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Long, Visit> eldest) {
+                if (size() > TownCache.this.capacity) {
+                    remember(eldest.getKey(), eldest.getValue().flags);
+                    return true;
+                }
+                return false;
+            }
+        };
+        remembered = new long[INITIAL_TABLE];
+        rememberedCount = 0;
+    }
+
+    /**
+     * Finds a town the hunter is arriving in, as it was left if it has been visited before.
+     *
+     * @param town The town's number.
+     * @param shop The town's shoppe.
+     * @param toughness The chance for a town to be tough in the game's mode.
+     * @param easy Whether items never break.
+     * @param rng The game's random source.
+     * @param rules The break chance and loot odds.
+     * @return The town and what has been done in it.
+     */
+    public Visit visit(long town, Shop shop, double toughness, boolean easy, SplittableRandom rng, Rules rules) {
+        Visit visit = recent.get(town);
+        if (visit == null) {
+            visit = new Visit(world.town(town, shop, toughness, easy, rng, rules), forget(town));
+            recent.put(town, visit);
+        }
+        return visit;
+    }
+
+    /**
+     * Records what the hunter did in the town they are leaving.
+     *
+     * @param town The town's number.
+     * @param searched Whether it was searched for treasure.
+     * @param dug Whether it was dug for gold.
+     */
+    public void leave(long town, boolean searched, boolean dug) {
+        Visit visit = recent.get(town);
+        if (visit != null) {
+            visit.flags = (searched ? SEARCHED : 0) | (dug ? DUG : 0);
+        }
+    }
+
+    /**
+     * @return How many towns are kept whole.
+     */
+    public int getRecentCount() {
+        return recent.size();
+    }
+
+    /**
+     * @return How many towns are remembered only by what was done in them.
+     */
+    public int getRememberedCount() {
+        return rememberedCount;
+    }
+
+    /**
+     * @return The most bytes writeTo() needs.
+     */
+    public int serializedSize() {
+        return Integer.BYTES + Long.BYTES * (rememberedCount + recent.size());
+    }
+
+    /**
+     * Writes every visited town that was searched or dug, apart from the current one, for a session snapshot.
+     *
+     * @param snapshot The buffer to write to.
+     * @param current The town the hunter is in.
+     */
+    public void writeTo(ByteBuffer snapshot, long current) {
+        int countAt = snapshot.position();
+        snapshot.putInt(0);
+        int count = 0;
+        for (Map.Entry<Long, Visit> visit : recent.entrySet()) {
+            if (visit.getKey() != current && visit.getValue().flags != 0) {
+                snapshot.putLong((visit.getKey() + 1) << FLAG_BITS | visit.getValue().flags);
+                count++;
+            }
+        }
+        for (long entry : remembered) {
+            if (entry != 0) {
+                snapshot.putLong(entry);
+                count++;
+            }
+        }
+        snapshot.putInt(countAt, count);
+    }
+
+    /**
+     * Reads back the towns written by writeTo(); they are rebuilt from the World when next visited.
+     *
+     * @param snapshot The buffer to read from.
+     */
+    public void readFrom(ByteBuffer snapshot) {
+        int count = snapshot.getInt();
+        for (int i = 0; i < count; i++) {
+            long entry = snapshot.getLong();
+            remember((entry >>> FLAG_BITS) - 1, (int) entry & (SEARCHED | DUG));
+        }
+    }
+
+    private int slot(long town) {
+        return (int) (town * GOLDEN_GAMMA >>> 32) & (remembered.length - 1);
+    }
+
+    private void remember(long town, int flags) {
+        if (flags == 0) {
+            return;
+        }
+        if ((rememberedCount + 1) * 2 > remembered.length) {
+            long[] old = remembered;
+            remembered = new long[old.length * 2];
+            rememberedCount = 0;
+            for (long entry : old) {
+                if (entry != 0) {
+                    remember((entry >>> FLAG_BITS) - 1, (int) entry & (SEARCHED | DUG));
+                }
+            }
+        }
+        int mask = remembered.length - 1;
+        int i = slot(town);
+        // a town is either recent or remembered, never both, so it is not in the table yet
+        while (remembered[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        remembered[i] = (town + 1) << FLAG_BITS | flags;
+        rememberedCount++;
+    }
+
+    /**
+     * Takes a town out of the table.
+     *
+     * @return What was done in it, or 0 if it was not there.
+     */
+    private int forget(long town) {
+        int mask = remembered.length - 1;
+        for (int i = slot(town); remembered[i] != 0; i = (i + 1) & mask) {
+            if ((remembered[i] >>> FLAG_BITS) - 1 == town) {
+                int flags = (int) remembered[i] & (SEARCHED | DUG);
+                // move later entries of the run back into the hole, so lookups still reach them
+                int hole = i;
+                for (int j = (i + 1) & mask; remembered[j] != 0; j = (j + 1) & mask) {
+                    int home = slot((remembered[j] >>> FLAG_BITS) - 1);
+                    if (((j - home) & mask) >= ((j - hole) & mask)) {
+                        remembered[hole] = remembered[j];
+                        hole = j;
+                    }
+                }
+                remembered[hole] = 0;
+                rememberedCount--;
+                return flags;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * A town the hunter has been to, and what they did there.
+     */
+    public static class Visit {
+        private final Town town;
+        private int flags;
+
+        Visit(Town town, int flags) {
+            this.town = town;
+            this.flags = flags;
+        }
+
+        public Town getTown() {
+            return town;
+        }
+
+        /**
+         * @return true if the hunter has searched the town for treasure.
+         */
+        public boolean isSearched() {
+            return (flags & SEARCHED) != 0;
+        }
+
+        /**
+         * @return true if the hunter has dug the town for gold.
+         */
+        public boolean isDug() {
+            return (flags & DUG) != 0;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * The treasures that can be found by hunting in a town.<p>
+ * Each treasure owns one bit, so the hunter's whole collection fits in a single int.
+ */
+
+public enum Treasure {
+    CROWN("crown"),
+    TROPHY("trophy"),
+    GEM("gem");
+
+    /** The bits of every treasure; a hunter holding all of them has won. */
+    public static final int ALL = CROWN.bit | TROPHY.bit | GEM.bit;
+
+    // instance variables
+    private final String treasureName;
+    private final int bit;
+
+    Treasure(String treasureName) {
+        this.treasureName = treasureName;
+        bit = 1 << ordinal();
+    }
+
+    public String getTreasureName() {
+        return treasureName;
+    }
+
+    /**
+     * @return The bit this treasure occupies in a collection.
+     */
+    public int bit() {
+        return bit;
+    }
+
+    /**
+     * Looks up a treasure by name.
+     *
+     * @param name The lowercase treasure name.
+     * @return The treasure, or null if there is no treasure with that name.
+     */
+    public static Treasure find(String name) {
+        switch (name) {
+            case "crown": return CROWN;
+            case "trophy": return TROPHY;
+            case "gem": return GEM;
+            default: return null;
+        }
+    }
+}
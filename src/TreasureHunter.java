@@ -1,4 +1,10 @@
-import java.util.Scanner;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 /**
  * This class is responsible for controlling the Treasure Hunter game.<p>
@@ -9,10 +15,52 @@ import java.util.Scanner;
  */
 
 public class TreasureHunter {
+    // constants
+    private static final int STARTING_GOLD = 10;
+    private static final int EASY_STARTING_GOLD = 20;
+    private static final int TEST_STARTING_GOLD = 100;
+    private static final long TEST_KIT = Item.ROPE.bit() | Item.WATER.bit() | Item.MACHETE.bit() | Item.BOAT.bit()
+            | Item.HORSE.bit() | Item.BOOTS.bit() | Item.SHOVEL.bit();
+    private static final short SNAPSHOT_MAGIC = 0x5448; // "TH"
+    private static final byte SNAPSHOT_VERSION = 3;
+    private static final int HARD_MODE = 1;
+    private static final int EASY_MODE = 2;
+    private static final int SAMURAI_MODE = 4;
+    private static final int TOWN_SEARCHED = 8;
+    private static final int GOLD_SEARCHED = 16;
+    private static final int TOWNS_KEPT = 64;
+    private static final int MAX_MODE_LENGTH = 16;
+    private static final int MAX_MODE_BYTES = 0xFF;
+
+    private static final byte[] MENU = Renderer.bytes(
+            "(B)uy something at the shop.\n"
+            + "(S)ell something at the shop.\n"
+            + "(M)ove on to a different town.\n"
+            + "(L)ook for trouble!\n"
+            + "(H)unt for treasure!\n"
+            + "(D)ig for treasure!\n"
+            + "Give up the hunt and e(X)it.\n"
+            + "\n"
+            + "What's your next move? ");
+
     // static variables
-    private static final Scanner SCANNER = new Scanner(System.in);
+    private static final Metrics METRICS = Metrics.GLOBAL;
+    private static final CommandTable STANDARD_COMMANDS = buildStandardCommands();
 
     // instance variables
+    private Policy policy;
+    private Renderer out;
+    private SplittableRandom rng;
+    private GameListener listener;
+    private OutcomeListener outcomes;
+    private CommandTable commands;
+    private byte[] savedGame;
+    private World world;
+    private TownCache towns;
+    private Leaderboard leaderboard;
+    private SpectatorFeed spectators;
+    private Rules rules;
+    private long townId;
     private Town currentTown;
     private Hunter hunter;
     private Shop shop;
@@ -25,11 +73,31 @@ public class TreasureHunter {
     private String hard;
 
     private int count;
+    private GameResult result;
+    private Outcome lastOutcome;
 
     /**
-     * Constructs the Treasure Hunter game.
+     * Constructs the Treasure Hunter game, played at the console.
      */
     public TreasureHunter() {
+        this(new InputPolicy(new StreamInput(System.in)), new Renderer(new FileOutputStream(FileDescriptor.out), true), new SplittableRandom());
+    }
+
+    /**
+     * Constructs the Treasure Hunter game.
+     *
+     * @param policy Makes the player's decisions.
+     * @param out Collects the game's text and shows it once per turn.
+     * @param rng The random source for this game only; seeding it makes the game reproducible.
+     */
+    public TreasureHunter(Policy policy, Renderer out, SplittableRandom rng) {
+        this.policy = policy;
+        this.out = out;
+        this.rng = rng;
+        listener = GameListener.NONE;
+        outcomes = OutcomeListener.NONE;
+        rules = Rules.STANDARD;
+        commands = STANDARD_COMMANDS;
         // these will be initialized in the play method
         currentTown = null;
         hunter = null;
@@ -38,52 +106,334 @@ public class TreasureHunter {
         goldSearched = false;
         samuraiMode = false;
         count = 0;
+        result = null;
+        lastOutcome = Outcome.of(Outcome.Kind.NOTHING);
+    }
+
+    /**
+     * Starts the game and plays it until it is over.
+     *
+     * @return How the game finished.
+     */
+    public GameResult play() {
+        policy.start(new View());
+        if (savedGame != null) {
+            restoreFrom(savedGame);
+            out.println("Welcome back, " + hunter.getHunterName() + "! Your hunt carries on where you left it.");
+        } else {
+            welcomePlayer();
+            enterTown();
+        }
+        try {
+            showMenu();
+        } finally {
+            currentTown.hunterLeaves();
+        }
+        return result;
+    }
+
+    /**
+     * Carries on a game restored with restore() from where it was saved.
+     *
+     * @return How the game finished.
+     */
+    public GameResult resume() {
+        policy.start(new View());
+        try {
+            showMenu();
+        } finally {
+            currentTown.hunterLeaves();
+        }
+        return result;
+    }
+
+    /**
+     * @param savedGame A game saved with snapshot() that play() carries on, instead of welcoming a new player.
+     */
+    public void setSavedGame(byte[] savedGame) {
+        this.savedGame = savedGame;
+    }
+
+    /**
+     * @param commands The menu commands for this game, usually standardCommands() with more registered.
+     */
+    public void setCommands(CommandTable commands) {
+        this.commands = commands;
+    }
+
+    /**
+     * @param rules The numbers the game is balanced by; set them before play().
+     */
+    public void setRules(Rules rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * @param outcomes Told the outcome of every hunt, brawl, dig and attempt to leave town.
+     */
+    public void setOutcomeListener(OutcomeListener outcomes) {
+        this.outcomes = outcomes;
+    }
+
+    /**
+     * @param world The map the game is played on; set it before play(). Without one every town is rolled at random.
+     *              The towns visited are remembered, so going back to one finds it as it was left.
+     */
+    public void setWorld(World world) {
+        this.world = world;
+        towns = new TownCache(world, TOWNS_KEPT);
+        townId = World.START;
+    }
+
+    /**
+     * @param leaderboard Where the game is recorded once it is over; null keeps no record.
+     */
+    public void setLeaderboard(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+
+    /**
+     * @param spectators Where every turn is broadcast to watchers; null broadcasts nothing.
+     */
+    public void setSpectatorFeed(SpectatorFeed spectators) {
+        this.spectators = spectators;
+    }
+
+    /**
+     * Saves the whole session in a compact, versioned binary form:
+     * the mode and its flags, the turn count, the hunter, the current town and where it is in the world,
+     * and the other towns of the world that have been searched or dug.
+     * Display strings are not saved; they are rebuilt on restore.
+     *
+     * @return The snapshot.
+     */
+    public byte[] snapshot() {
+        byte[] mode = hard.getBytes(StandardCharsets.UTF_8);
+        if (mode.length > MAX_MODE_BYTES) {
+            throw new IllegalStateException("mode too long for a snapshot: " + mode.length + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(64 + mode.length + 3 * hunter.getHunterName().length()
+                + (towns == null ? Integer.BYTES : towns.serializedSize()));
+        buffer.putShort(SNAPSHOT_MAGIC);
+        buffer.put(SNAPSHOT_VERSION);
+        int flags = 0;
+        flags |= hardMode ? HARD_MODE : 0;
+        flags |= easyMode ? EASY_MODE : 0;
+        flags |= samuraiMode ? SAMURAI_MODE : 0;
+        flags |= townSearched ? TOWN_SEARCHED : 0;
+        flags |= goldSearched ? GOLD_SEARCHED : 0;
+        buffer.put((byte) flags);
+        buffer.put((byte) mode.length);
+        buffer.put(mode);
+        buffer.putInt(count);
+        hunter.writeTo(buffer);
+        currentTown.writeTo(buffer);
+        buffer.putLong(townId);
+        if (towns == null) {
+            buffer.putInt(0);
+        } else {
+            towns.writeTo(buffer, townId);
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Rebuilds a game saved with snapshot(); call resume() to carry on playing it.
+     *
+     * @param snapshot The saved session.
+     * @param policy Makes the player's decisions.
+     * @param out Collects the game's text and shows it once per turn.
+     * @param rng The random source for the rest of the game.
+     * @return The restored game.
+     * @throws IllegalArgumentException If the snapshot is not one, is of an unknown version, or is cut short.
+     */
+    public static TreasureHunter restore(byte[] snapshot, Policy policy, Renderer out, SplittableRandom rng) {
+        TreasureHunter game = new TreasureHunter(policy, out, rng);
+        game.restoreFrom(snapshot);
+        return game;
+    }
+
+    private void restoreFrom(byte[] snapshot) {
+        try {
+            restoreFrom(ByteBuffer.wrap(snapshot));
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Treasure Hunter snapshot cut short", e);
+        }
+    }
+
+    private void restoreFrom(ByteBuffer buffer) {
+        if (buffer.getShort() != SNAPSHOT_MAGIC) {
+            throw new IllegalArgumentException("not a Treasure Hunter snapshot");
+        }
+        int version = buffer.get();
+        if (version < 1 || version > SNAPSHOT_VERSION) {
+            throw new IllegalArgumentException("unsupported Treasure Hunter snapshot version " + version);
+        }
+        int flags = buffer.get();
+        hardMode = (flags & HARD_MODE) != 0;
+        easyMode = (flags & EASY_MODE) != 0;
+        samuraiMode = (flags & SAMURAI_MODE) != 0;
+        townSearched = (flags & TOWN_SEARCHED) != 0;
+        goldSearched = (flags & GOLD_SEARCHED) != 0;
+        byte[] mode = new byte[buffer.get() & MAX_MODE_BYTES];
+        buffer.get(mode);
+        hard = new String(mode, StandardCharsets.UTF_8);
+        count = buffer.getInt();
+        hunter = Hunter.readFrom(buffer);
+        hunter.setListener(listener);
+        hunter.setVictoryListener(this::victory);
+        shop = openShop();
+        currentTown = Town.readFrom(buffer, version, shop, rng, rules);
+        townId = version == 1 ? World.START : buffer.getLong();
+        if (world != null) {
+            if (version >= 3) {
+                towns.readFrom(buffer);
+            }
+            // the world knows the town better than the snapshot, including its loot
+            currentTown = towns.visit(townId, currentTown.getShop(), toughness(), easyMode, rng, rules).getTown();
+        }
+        currentTown.hunterArrives(hunter);
+        result = null;
+    }
+
+    /**
+     * @param listener Told about every GameEvent in this game; set it before play().
+     */
+    public void setListener(GameListener listener) {
+        this.listener = listener;
+    }
+
+    public Hunter getHunter() {
+        return hunter;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public GameResult getResult() {
+        return result;
+    }
+
+    // what the policy sees, through a View
+
+    public String getMode() {
+        return hard;
+    }
+
+    public int getGold() {
+        return hunter.getGold();
+    }
+
+    public boolean hasItem(Item item) {
+        return hunter.hasItemInKit(item);
+    }
+
+    public boolean hasTreasure(Treasure treasure) {
+        return hunter.hasTreasureInKit(treasure);
+    }
+
+    public Item getItemNeededToLeave() {
+        return currentTown.getTerrain().getItem();
+    }
+
+    public boolean isToughTown() {
+        return currentTown.isToughTown();
+    }
+
+    public boolean isTownSearched() {
+        return townSearched;
+    }
+
+    public boolean isGoldSearched() {
+        return goldSearched;
+    }
+
+    public int getPrice(Item item) {
+        return currentTown.getShop().getCostOfItem(item);
+    }
+
+    public int getBuyBackPrice(Item item) {
+        return currentTown.getShop().getBuyBackCost(item);
     }
 
     /**
-     * Starts the game; this is the only public method
+     * @return true if the hunter has reached a town and the game has not finished yet.
      */
-    public void play() {
-        welcomePlayer();
-        enterTown();
-        showMenu();
+    public boolean isInProgress() {
+        return currentTown != null && result == null;
     }
 
 
     /**
-     * Creates a hunter object at the beginning of the game and populates the class member variable with it.
+     * Creates a hunter object at the beginning of the game and populates the class member variable with it.<p>
+     * A name or mode too long to be saved in a snapshot is asked for again.
      */
     private void welcomePlayer() {
-        System.out.println("Welcome to TREASURE HUNTER!");
-        System.out.println("Going hunting for the big treasure, eh?");
-        System.out.print("What's your name, Hunter? ");
-        String name = SCANNER.nextLine().toLowerCase();
+        out.println("Welcome to TREASURE HUNTER!");
+        out.println("Going hunting for the big treasure, eh?");
+        out.print("What's your name, Hunter? ");
+        out.flush();
+        String name = policy.hunterName();
+        while (name.length() > Hunter.MAX_NAME_LENGTH) {
+            out.print("That's a mouthful! Keep it to " + Hunter.MAX_NAME_LENGTH + " letters. What's your name, Hunter? ");
+            out.flush();
+            name = policy.hunterName();
+        }
 
         // set hunter instance variable
-        hunter = new Hunter(name, 10);
+        hunter = new Hunter(name, STARTING_GOLD);
+        hunter.setListener(listener);
+        hunter.setVictoryListener(this::victory);
 
-        System.out.print("Choose the mode((E)asy,(N)ormal,(H)ard,(T)est): ");
-        hard = SCANNER.nextLine().toLowerCase();
+        out.print("Choose the mode((E)asy,(N)ormal,(H)ard,(T)est): ");
+        out.flush();
+        hard = policy.mode();
+        while (hard.length() > MAX_MODE_LENGTH) {
+            out.print("Choose the mode((E)asy,(N)ormal,(H)ard,(T)est): ");
+            out.flush();
+            hard = policy.mode();
+        }
         if (hard.equals("h")) {
             hardMode = true;
         } else if (hard.equals("t")) {
-            hunter.changeGold(90);
-            hunter.addItem("rope");
-            hunter.addItem("water");
-            hunter.addItem("machete");
-            hunter.addItem("boat");
-            hunter.addItem("horse");
-            hunter.addItem("boots");
-            hunter.addItem("shovel");
+            hunter.changeGold(startingGold(hard) - STARTING_GOLD);
+            for (Item item : Item.values()) {
+                if ((startingKit(hard) & item.bit()) != 0) {
+                    hunter.addItem(item);
+                }
+            }
         } else if (hard.equals("e")) {
             easyMode = true;
-            hunter.changeGold(10);
+            hunter.changeGold(startingGold(hard) - STARTING_GOLD);
 
         } else if (hard.equals("s")) {
-            System.out.println("\033[0;31m" + "You have entered samurai mode!" + "\033[0m");
+            out.println(Colors.RED_CODE, "You have entered samurai mode!");
             samuraiMode  = true;
         }
     }
+
+    /**
+     * @param mode A mode letter.
+     * @return The gold a hunter starts the game with in that mode.
+     */
+    public static int startingGold(String mode) {
+        if (mode.equals("e")) {
+            return EASY_STARTING_GOLD;
+        } else if (mode.equals("t")) {
+            return TEST_STARTING_GOLD;
+        }
+        return STARTING_GOLD;
+    }
+
+    /**
+     * @param mode A mode letter.
+     * @return The kit a hunter starts the game with in that mode, one bit per Item.
+     */
+    public static long startingKit(String mode) {
+        return mode.equals("t") ? TEST_KIT : 0;
+    }
+
     public String samReturn() {
         if (samuraiMode) {
             return "s";
@@ -96,31 +446,25 @@ public class TreasureHunter {
      * Creates a new town and adds the Hunter to it.
      */
     private void enterTown() {
-        double markdown = 0.5;
-        double toughness = 0.4;
-        if (hardMode) {
-            // in hard mode, you get less money back when you sell items
-            markdown = 0.25;
-
-            // and the town is "tougher"
-            toughness = 0.75;
-        } else if (easyMode) {
-            markdown = 0;
-            toughness = 0.2;
-        }
-
-        // note that we don't need to access the Shop object
-        // outside of this method, so it isn't necessary to store it as an instance
-        // variable; we can leave it as a local variable
-        Shop shop = new Shop(markdown);
-        if(hard.equals("s")){
-            shop.addToShop("\033[0;35m" + "Sword: " + "\033[0m" + 0 + " gold\n");
+        double toughness = toughness();
+
+        // every town sells the same things at the same prices for the whole game,
+        // so the Shop is opened once and each town only gets a reference to it
+        if (shop == null) {
+            shop = openShop();
         }
 
         // creating the new Town -- which we need to store as an instance
         // variable in this class, since we need to access the Town
         // object in other methods of this class
-        currentTown = new Town(shop, toughness, easyMode);
+        if (world == null) {
+            currentTown = new Town(shop, toughness, easyMode, rng, rules);
+        } else {
+            TownCache.Visit visit = towns.visit(townId, shop, toughness, easyMode, rng, rules);
+            currentTown = visit.getTown();
+            townSearched = visit.isSearched();
+            goldSearched = visit.isDug();
+        }
 
         // calling the hunterArrives method, which takes the Hunter
         // as a parameter; note this also could have been done in the
@@ -129,82 +473,242 @@ public class TreasureHunter {
         currentTown.hunterArrives(hunter);
     }
 
+    /**
+     * @return The chance for a town to be tough in the game's mode; the tougher the mode, the tougher the town.
+     */
+    private double toughness() {
+        return rules.getToughness(hard);
+    }
+
+    /**
+     * Creates the shop every town in this game shares, priced by the Rules for the game's mode.<p>
+     * In hard mode, you get less money back when you sell items.
+     *
+     * @return The new Shop.
+     */
+    private Shop openShop() {
+        Shop shop = new Shop(rules.getCatalog(), rules.getMarkdown(hard), policy, out);
+        if(hard.equals("s")){
+            shop.addToShop(Item.SWORD);
+        }
+        return shop;
+    }
+
     /**
      * Displays the menu and receives the choice from the user.<p>
      * The choice is sent to the processChoice() method for parsing.<p>
-     * This method will loop until the user chooses to exit.
+     * When the player has already typed the next commands, as in "b shovel y; d; m", the menu is
+     * skipped and nothing is shown until those commands have run, so the whole batch costs one frame.<p>
+     * When the game is broadcast, the state after every turn is published to the SpectatorFeed.<p>
+     * This method will loop until the user chooses to exit, goes broke, or the hunter's victory
+     * listener reports the last treasure found.
      */
     private void showMenu() {
         String choice = "";
+        if (spectators != null) {
+            spectators.open(hunter.getHunterName());
+            spectators.publish(count, hunter, currentTown, lastOutcome, null);
+        }
         while (!choice.equals("x")) {
-            if(currentTown.end()){
-                System.out.println("Congratulations, you have found the last of the three treasures, you win!");
+            if (result == GameResult.WON) {
+                out.println("Congratulations, you have found the last of the three treasures, you win!");
                 choice = "x";
+                if (spectators != null) {
+                    spectators.publish(count, hunter, currentTown, Outcome.of(Outcome.Kind.NOTHING), result);
+                }
             }
             else {
 
-                System.out.println();
-                System.out.println(currentTown.getLatestNews());
-                System.out.println("***");
-                System.out.println(hunter);
-                System.out.println(currentTown);
-                System.out.println("(B)uy something at the shop.");
-                System.out.println("(S)ell something at the shop.");
-                System.out.println("(M)ove on to a different town.");
-                System.out.println("(L)ook for trouble!");
-                System.out.println("(H)unt for treasure!");
-                System.out.println("(D)ig for treasure!");
-                System.out.println("Give up the hunt and e(X)it.");
-                System.out.println();
-                System.out.print("What's your next move? ");
+                out.println();
+                OutcomeFormatter.news(currentTown.getLatestNews(), hunter.getHunterName(), out);
+                if (!policy.hasPendingInput()) {
+                    out.println("***");
+                    out.println(hunter.toString());
+                    out.println(currentTown.toString());
+                    out.write(MENU);
+                    out.flush();
+                }
                 count ++;
-                choice = SCANNER.nextLine().toLowerCase();
+                choice = policy.nextMove();
+                lastOutcome = Outcome.of(Outcome.Kind.NOTHING);
                 processChoice(choice);
+                if (choice.equals("x")) {
+                    result = GameResult.QUIT;
+                    METRICS.count(Metrics.Counter.GAMES_QUIT);
+                }
                 if (hunter.getGold() < 0) {
-                    System.out.println("You lost the brawl!");
-                    System.out.println("You have " + hunter.getGold());
-                    System.out.println("You lose(ran out of gold)!");
+                    out.println("You lost the brawl!");
+                    out.println("You have " + hunter.getGold());
+                    out.println("You lose(ran out of gold)!");
+                    result = GameResult.BROKE;
+                    METRICS.count(Metrics.Counter.GAMES_BROKE);
                     choice = "x";
                 }
+                if (spectators != null) {
+                    spectators.publish(count, hunter, currentTown, lastOutcome, result);
+                }
             }
         }
+        out.flush();
+        if (spectators != null) {
+            spectators.close();
+        }
+        if (leaderboard != null) {
+            leaderboard.add(this);
+        }
     }
 
     /**
-     * Takes the choice received from the menu and calls the appropriate method to carry out the instructions.
+     * Takes the choice received from the menu and runs the command registered for it.<p>
+     * One move in Metrics.SAMPLE_EVERY is timed here, apart from the shop, which waits for the player
+     * and so times its own trades.
      * @param choice The action to process.
      */
     private void processChoice(String choice) {
-        if (choice.equals("b") || choice.equals("s")) {
-            currentTown.enterShop(choice);
-        } else if (choice.equals("h")) {
-            if (!townSearched) {
-                currentTown.hunt();
-                townSearched = true;
-            } else {
-                System.out.println("You have searched this town already!");
+        METRICS.count(Metrics.Counter.MOVES);
+        int key = CommandTable.key(choice);
+        Metrics.Action action = commands.action(key);
+        long start = action != null && count % Metrics.SAMPLE_EVERY == 0 ? System.nanoTime() : 0;
+        CommandTable.Command command = commands.get(key);
+        if (command != null) {
+            command.execute(this, choice);
+        } else {
+            out.println("Yikes! That's an invalid option! Try again.");
+        }
+        if (start != 0) {
+            METRICS.time(action, start);
+        }
+    }
+
+    private void enterShop(String choice) {
+        currentTown.enterShop(choice);
+    }
+
+    private void huntTown() {
+        if (!townSearched) {
+            OutcomeFormatter.report(happened(currentTown.hunt()), out);
+            townSearched = true;
+        } else {
+            out.println("You have searched this town already!");
+        }
+    }
+
+    private void moveOn() {
+        Outcome leaving = happened(currentTown.leaveTown());
+        if (leaving.leftTown()) {
+            if (towns != null) {
+                towns.leave(townId, townSearched, goldSearched);
             }
-        } else if (choice.equals("m")) {
-                if (currentTown.leaveTown()) {
-                    townSearched = false;
-                    goldSearched = false;
-                    // This town is going away so print its news ahead of time.
-                    System.out.println(currentTown.getLatestNews());
-                    enterTown();
-                }
-            } else if (choice.equals("l")) {
-                currentTown.lookForTrouble();
-            } else if (choice.equals("x")) {
-                System.out.println("Fare thee well, " + hunter.getHunterName() + "!");
-            } else if (choice.equals("d")) {
-                if (!goldSearched) {
-                    currentTown.dig();
-                    goldSearched = true;
-                } else {
-                    System.out.println("You have dug for gold in this town already!");
-                }
-            } else {
-                System.out.println("Yikes! That's an invalid option! Try again.");
+            townSearched = false;
+            goldSearched = false;
+            // This town is going away so print its news ahead of time.
+            OutcomeFormatter.news(leaving, hunter.getHunterName(), out);
+            if (world != null) {
+                townId = world.exit(townId, rng.nextInt(World.EXITS));
             }
+            enterTown();
+        }
+    }
+
+    private void brawl() {
+        OutcomeFormatter.report(happened(currentTown.lookForTrouble()), out);
+    }
+
+    private void digForGold() {
+        if (!goldSearched) {
+            OutcomeFormatter.report(happened(currentTown.dig()), out);
+            goldSearched = true;
+        } else {
+            out.println("You have dug for gold in this town already!");
+        }
+    }
+
+    /**
+     * Called by the hunter when they find the last treasure; the menu loop ends on the next pass.
+     */
+    private void victory() {
+        result = GameResult.WON;
+        METRICS.count(Metrics.Counter.GAMES_WON);
+    }
+
+    private Outcome happened(Outcome outcome) {
+        outcomes.onOutcome(outcome);
+        lastOutcome = outcome;
+        return outcome;
+    }
+
+    private void quit() {
+        out.println("Fare thee well, " + hunter.getHunterName() + "!");
+    }
+
+    /**
+     * The table every game starts with is shared and never changed, so this hands out a copy of it.
+     *
+     * @return The commands of the menu, to register more on and give to a game with setCommands().
+     */
+    public static CommandTable standardCommands() {
+        return STANDARD_COMMANDS.copy();
+    }
+
+    private static CommandTable buildStandardCommands() {
+        CommandTable table = new CommandTable();
+        table.register('b', null, TreasureHunter::enterShop);
+        table.register('s', null, TreasureHunter::enterShop);
+        table.register('h', Metrics.Action.HUNT, (game, choice) -> game.huntTown());
+        table.register('m', Metrics.Action.TRAVEL, (game, choice) -> game.moveOn());
+        table.register('l', Metrics.Action.BRAWL, (game, choice) -> game.brawl());
+        table.register('d', Metrics.Action.DIG, (game, choice) -> game.digForGold());
+        table.register('x', Metrics.Action.OTHER, (game, choice) -> game.quit());
+        return table;
+    }
+
+    /**
+     * What the policy is given to decide its moves by. It only reads the game, and unlike the game itself
+     * it cannot be cast to anything that changes it.
+     */
+    private class View implements GameView {
+        public String getMode() {
+            return TreasureHunter.this.getMode();
+        }
+
+        public int getCount() {
+            return TreasureHunter.this.getCount();
+        }
+
+        public int getGold() {
+            return TreasureHunter.this.getGold();
+        }
+
+        public boolean hasItem(Item item) {
+            return TreasureHunter.this.hasItem(item);
+        }
+
+        public boolean hasTreasure(Treasure treasure) {
+            return TreasureHunter.this.hasTreasure(treasure);
+        }
+
+        public Item getItemNeededToLeave() {
+            return TreasureHunter.this.getItemNeededToLeave();
+        }
+
+        public boolean isToughTown() {
+            return TreasureHunter.this.isToughTown();
+        }
+
+        public boolean isTownSearched() {
+            return TreasureHunter.this.isTownSearched();
+        }
+
+        public boolean isGoldSearched() {
+            return TreasureHunter.this.isGoldSearched();
+        }
+
+        public int getPrice(Item item) {
+            return TreasureHunter.this.getPrice(item);
+        }
+
+        public int getBuyBackPrice(Item item) {
+            return TreasureHunter.this.getBuyBackPrice(item);
+        }
     }
 }
@@ -1,7 +1,19 @@
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.util.SplittableRandom;
+
 public class TreasureHunterRunner {
     public static void main(String[] args) {
-        TreasureHunter game = new TreasureHunter();
+        // colors are on unless asked for --no-color or the NO_COLOR convention is set
+        boolean color = System.getenv("NO_COLOR") == null;
+        for (String arg : args) {
+            if (arg.equals("--no-color")) {
+                color = false;
+            }
+        }
+        Renderer renderer = new Renderer(new FileOutputStream(FileDescriptor.out), color);
+        TreasureHunter game = new TreasureHunter(new InputPolicy(new StreamInput(System.in)), renderer, new SplittableRandom());
         game.play();
 
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,166 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The World is a seeded map of towns connected by roads.<p>
+ * Towns are numbered from 0 and each has EXITS roads leading to other towns. Nothing about a town
+ * is stored until someone first visits it: its terrain, how rough it is and the seed of its loot are
+ * all worked out from the world seed and the town's number. A world of billions of towns therefore
+ * only costs memory for the towns that have been visited, and two servers started with the same seed
+ * agree on the whole map without talking to each other.<p>
+ * A World is shared by every game on a server, so the visited towns are kept in a ConcurrentHashMap.<p>
+ * In a shared world the hunters in a town also compete for it: every visited town gets a SharedTown
+ * with its treasures, gold and shop stock, guarded by one of a fixed set of lock stripes.
+ */
+
+public class World {
+    // constants
+    public static final int EXITS = 3;
+    public static final long START = 0;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int STRIPES = 256;
+
+    // instance variables
+    private long seed;
+    private long size;
+    private ConcurrentHashMap<Long, Site> visited;
+    private int shopStock;
+    private int digSpots;
+    private Object[] stripes;
+
+    /**
+     * @param seed The seed the whole map is derived from.
+     * @param size How many towns there are.
+     */
+    public World(long seed, long size) {
+        this.seed = seed;
+        this.size = size;
+        visited = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Makes a shared world, where the hunters in a town compete for its treasures, gold and shop stock.
+     *
+     * @param seed The seed the whole map is derived from.
+     * @param size How many towns there are.
+     * @param shopStock How many of each item every shop starts with.
+     * @param digSpots How many digs in each town turn up gold.
+     */
+    public World(long seed, long size, int shopStock, int digSpots) {
+        this(seed, size);
+        this.shopStock = shopStock;
+        this.digSpots = digSpots;
+        stripes = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * @return true if the hunters in a town compete for it.
+     */
+    public boolean isShared() {
+        return stripes != null;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return How many towns have been visited so far.
+     */
+    public int getVisitedCount() {
+        return visited.size();
+    }
+
+    /**
+     * @param town A town's number.
+     * @param road Which of its roads is taken, from 0 to EXITS - 1.
+     * @return The number of the town the road leads to.
+     */
+    public long exit(long town, int road) {
+        return Math.floorMod(mix(mix(seed ^ town) + (road + 1) * GOLDEN_GAMMA), size);
+    }
+
+    /**
+     * @param town A town's number.
+     * @return What never changes about the town, generated on its first visit.
+     */
+    public Site site(long town) {
+        Site site = visited.get(town);
+        if (site == null) {
+            site = visited.computeIfAbsent(town, this::generate);
+        }
+        return site;
+    }
+
+    /**
+     * Builds the town a hunter arrives in. Its terrain, toughness and loot are the world's;
+     * brawls and broken items still depend on the game's own luck.
+     *
+     * @param town The town's number.
+     * @param shop The town's shoppe.
+     * @param toughness The chance for a town to be tough in the game's mode.
+     * @param easy Whether items never break.
+     * @param rng The game's random source.
+     * @param rules The break chance and loot odds.
+     * @return The town.
+     */
+    public Town town(long town, Shop shop, double toughness, boolean easy, SplittableRandom rng, Rules rules) {
+        Site site = site(town);
+        Town visit = new Town(shop, site.terrain, site.roughness < toughness, easy, rng, new SplittableRandom(site.lootSeed), rules);
+        visit.setCommons(site.commons);
+        return visit;
+    }
+
+    private Site generate(long town) {
+        SplittableRandom rolls = new SplittableRandom(mix(seed + (town + 1) * GOLDEN_GAMMA));
+        SharedTown commons = stripes == null ? null
+                : new SharedTown(stripes[(int) mix(town) & (STRIPES - 1)], shopStock, digSpots);
+        return new Site(Terrain.of(rolls.nextInt(Terrain.count())), rolls.nextDouble(), rolls.nextLong(), commons);
+    }
+
+    /**
+     * Scrambles a number so that neighbouring inputs give unrelated outputs.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * What the world decides about a town: its terrain, how rough it is
+     * (it is tough when this is below the mode's toughness), and the seed its hunts and digs are rolled from.
+     * In a shared world it also holds what the hunters in town compete for.
+     */
+    public static class Site {
+        final Terrain terrain;
+        final double roughness;
+        final long lootSeed;
+        final SharedTown commons;
+
+        Site(Terrain terrain, double roughness, long lootSeed, SharedTown commons) {
+            this.terrain = terrain;
+            this.roughness = roughness;
+            this.lootSeed = lootSeed;
+            this.commons = commons;
+        }
+
+        public Terrain getTerrain() {
+            return terrain;
+        }
+
+        public double getRoughness() {
+            return roughness;
+        }
+
+        /**
+         * @return What the hunters in town compete for, or null if the world is not shared.
+         */
+        public SharedTown getCommons() {
+            return commons;
+        }
+    }
+}